@@ -34,12 +34,13 @@ import snw.jkook.entity.channel.Channel;
 import snw.jkook.entity.channel.NonCategoryChannel;
 import snw.jkook.entity.channel.TextChannel;
 import snw.jkook.message.ChannelMessage;
+import snw.jkook.message.Message;
 import snw.jkook.message.PrivateMessage;
 import snw.jkook.message.TextChannelMessage;
-import snw.jkook.message.component.BaseComponent;
 import snw.jkook.util.PageIterator;
 import snw.jkook.util.Validate;
 import snw.kookbc.impl.message.ChannelMessageImpl;
+import snw.kookbc.impl.message.LazyComponent;
 import snw.kookbc.impl.message.PrivateMessageImpl;
 import snw.kookbc.impl.message.TextChannelMessageImpl;
 import snw.kookbc.impl.network.HttpAPIRoute;
@@ -228,6 +229,11 @@ public class HttpAPIImpl implements HttpAPI {
 
     @Override
     public TextChannelMessage getTextChannelMessage(String id) throws NoSuchElementException {
+        return getTextChannelMessage(id, 0);
+    }
+
+    // depth: the depth of the message in the quote chain, see MessageBuilder#buildLazyQuote
+    public TextChannelMessage getTextChannelMessage(String id, int depth) throws NoSuchElementException {
         final JsonObject object;
         try {
             object = client.getNetworkClient()
@@ -242,20 +248,26 @@ public class HttpAPIImpl implements HttpAPI {
         }
         JsonObject rawSender = get(object, "author").getAsJsonObject();
         User sender = client.getStorage().getUser(get(rawSender, "id").getAsString(), rawSender);
-        final BaseComponent component = client.getMessageBuilder().buildComponent(object);
+        final LazyComponent component = client.getMessageBuilder().buildLazyComponent(object);
         long timeStamp = get(object, "create_at").getAsLong();
-        TextChannelMessage quote = null;
+        Message quote = null;
         if (has(object, "quote")) {
             final JsonObject rawQuote = get(object, "quote").getAsJsonObject();
             final String quoteId = get(rawQuote, "id").getAsString();
-            quote = getTextChannelMessage(quoteId);
+            quote = client.getMessageBuilder().buildLazyQuote(TextChannelMessage.class, rawQuote, quoteId, depth + 1,
+                    () -> getTextChannelMessage(quoteId, depth + 1));
         }
         final TextChannel channel = (TextChannel) getChannel(get(object, "channel_id").getAsString());
-        return new TextChannelMessageImpl(client, id, sender, component, timeStamp, quote, channel);
+        return TextChannelMessageImpl.lazy(client, id, sender, component, timeStamp, quote, channel);
     }
 
     @Override
     public ChannelMessage getChannelMessage(String id) throws NoSuchElementException {
+        return getChannelMessage(id, 0);
+    }
+
+    // depth: the depth of the message in the quote chain, see MessageBuilder#buildLazyQuote
+    public ChannelMessage getChannelMessage(String id, int depth) throws NoSuchElementException {
         final JsonObject object;
         try {
             object = client.getNetworkClient()
@@ -270,20 +282,26 @@ public class HttpAPIImpl implements HttpAPI {
         }
         JsonObject rawSender = get(object, "author").getAsJsonObject();
         User sender = client.getStorage().getUser(get(rawSender, "id").getAsString(), rawSender);
-        final BaseComponent component = client.getMessageBuilder().buildComponent(object);
+        final LazyComponent component = client.getMessageBuilder().buildLazyComponent(object);
         long timeStamp = get(object, "create_at").getAsLong();
-        ChannelMessage quote = null;
+        Message quote = null;
         if (has(object, "quote")) {
             final JsonObject rawQuote = get(object, "quote").getAsJsonObject();
             final String quoteId = get(rawQuote, "id").getAsString();
-            quote = getChannelMessage(quoteId);
+            quote = client.getMessageBuilder().buildLazyQuote(ChannelMessage.class, rawQuote, quoteId, depth + 1,
+                    () -> getChannelMessage(quoteId, depth + 1));
         }
         final NonCategoryChannel channel = (NonCategoryChannel) getChannel(get(object, "channel_id").getAsString());
-        return new ChannelMessageImpl(client, id, sender, component, timeStamp, quote, channel);
+        return ChannelMessageImpl.lazy(client, id, sender, component, timeStamp, quote, channel);
     }
 
     @Override
     public PrivateMessage getPrivateMessage(User user, String id) throws NoSuchElementException {
+        return getPrivateMessage(user, id, 0);
+    }
+
+    // depth: the depth of the message in the quote chain, see MessageBuilder#buildLazyQuote
+    public PrivateMessage getPrivateMessage(User user, String id, int depth) throws NoSuchElementException {
         final String chatCode = get(client.getNetworkClient()
                 .post(HttpAPIRoute.USER_CHAT_SESSION_CREATE.toFullURL(), // KOOK won't create multiple session
                         Collections.singletonMap("target_id", user.getId())), "code").getAsString();
@@ -299,15 +317,16 @@ public class HttpAPIImpl implements HttpAPI {
             }
             throw e;
         }
-        final BaseComponent component = client.getMessageBuilder().buildComponent(object);
+        final LazyComponent component = client.getMessageBuilder().buildLazyComponent(object);
         long timeStamp = get(object, "create_at").getAsLong();
-        PrivateMessage quote = null;
+        Message quote = null;
         if (has(object, "quote")) {
             final JsonObject rawQuote = get(object, "quote").getAsJsonObject();
             final String quoteId = get(rawQuote, "id").getAsString();
-            quote = getPrivateMessage(user, quoteId);
+            quote = client.getMessageBuilder().buildLazyQuote(PrivateMessage.class, rawQuote, quoteId, depth + 1,
+                    () -> getPrivateMessage(user, quoteId, depth + 1));
         }
-        return new PrivateMessageImpl(client, id, user, component, timeStamp, quote);
+        return PrivateMessageImpl.lazy(client, id, user, component, timeStamp, quote);
     }
 
     @Override
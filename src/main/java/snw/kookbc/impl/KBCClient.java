@@ -34,16 +34,26 @@ import snw.jkook.util.Validate;
 import snw.kookbc.SharedConstants;
 import snw.kookbc.impl.command.CommandManagerImpl;
 import snw.kookbc.impl.command.internal.HelpCommand;
+import snw.kookbc.impl.command.internal.HelpPages;
 import snw.kookbc.impl.command.litecommands.LiteKookFactory;
 import snw.kookbc.impl.command.litecommands.internal.PluginsCommand;
 import snw.kookbc.impl.console.Console;
 import snw.kookbc.impl.entity.builder.EntityBuilder;
 import snw.kookbc.impl.entity.builder.MessageBuilder;
 import snw.kookbc.impl.event.EventFactory;
+import snw.kookbc.impl.event.HandlerTimings;
 import snw.kookbc.impl.event.internal.UserClickButtonListener;
+import snw.kookbc.impl.message.MessageUpdateCoalescer;
 import snw.kookbc.impl.network.HttpAPIRoute;
 import snw.kookbc.impl.network.NetworkClient;
+import snw.kookbc.impl.network.ReorderBuffer;
+import snw.kookbc.impl.network.SNWindow;
 import snw.kookbc.impl.network.Session;
+import snw.kookbc.impl.network.dispatch.EventCoalescer;
+import snw.kookbc.impl.network.dispatch.EventDispatcher;
+import snw.kookbc.impl.network.dispatch.Lane;
+import snw.kookbc.impl.network.dispatch.LaneEventDispatcher;
+import snw.kookbc.impl.network.dispatch.LaneStats;
 import snw.kookbc.impl.network.webhook.JLHttpWebhookNetworkSystem;
 import snw.kookbc.impl.network.ws.OkhttpWebSocketNetworkSystem;
 import snw.kookbc.impl.plugin.InternalPlugin;
@@ -62,6 +72,7 @@ import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
@@ -74,18 +85,22 @@ public class KBCClient {
     private final CoreImpl core;
     private final CommandManager commandManager;
     private final NetworkClient networkClient;
+    private final MessageUpdateCoalescer messageUpdateCoalescer;
     private final EntityStorage storage;
     private final EntityBuilder entityBuilder;
     private final MessageBuilder msgBuilder;
     private final EventFactory eventFactory;
     private final ConfigurationSection config;
     private final File pluginsFolder;
-    private final Session session = new Session(null);
+    private final Session session;
     private final InternalPlugin internalPlugin;
+    private final HandlerTimings handlerTimings;
     private final ReentrantLock shutdownLock;
     private final Condition shutdownCondition;
 
     protected final ExecutorService eventExecutor;
+    protected final EventDispatcher eventDispatcher;
+    protected final EventCoalescer eventCoalescer; // null if disabled
     protected final NetworkSystem networkSystem;
     protected List<Plugin> plugins;
 
@@ -127,14 +142,24 @@ public class KBCClient {
         this.core = core;
         this.config = config;
         this.pluginsFolder = pluginsFolder;
+        this.session = new Session(
+                null,
+                new AtomicInteger(),
+                new ReorderBuffer(Math.max(1, config.getInt("sn-buffer-size", 1024))),
+                new SNWindow(Math.max(1, config.getInt("ignore-sn-window", 4096)))
+        );
         this.internalPlugin = new InternalPlugin(this);
+        this.handlerTimings = new HandlerTimings(this); // used by the event manager, so create it before init
         this.core.init(this);
         this.commandManager = Optional.ofNullable(commandManager).orElseGet(() -> CommandManagerImpl::new).apply(this);
         this.networkClient = Optional.ofNullable(networkClient).orElseGet(() -> c -> new NetworkClient(c, token)).apply(this);
+        this.messageUpdateCoalescer = new MessageUpdateCoalescer(this);
         this.storage = Optional.ofNullable(storage).orElseGet(() -> EntityStorage::new).apply(this);
         this.entityBuilder = Optional.ofNullable(entityBuilder).orElseGet(() -> EntityBuilder::new).apply(this);
         this.msgBuilder = Optional.ofNullable(msgBuilder).orElseGet(() -> MessageBuilder::new).apply(this);
         this.eventExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "Event Executor"));
+        this.eventDispatcher = EventDispatcher.create(this);
+        this.eventCoalescer = EventCoalescer.create(this);
         this.shutdownLock = new ReentrantLock();
         this.shutdownCondition = this.shutdownLock.newCondition();
         this.eventFactory = Optional.ofNullable(eventFactory).orElseGet(() -> EventFactory::new).apply(this);
@@ -417,9 +442,15 @@ public class KBCClient {
 
         getCore().getLogger().info("Stopping client");
         getCore().getPluginManager().clearPlugins();
+        messageUpdateCoalescer.shutdown();
 
         shutdownNetwork();
+        if (eventCoalescer != null) {
+            eventCoalescer.shutdown(); // it needs both the Event Executor and the dispatcher
+        }
         eventExecutor.shutdown();
+        eventDispatcher.shutdown();
+        handlerTimings.shutdown();
         getCore().getLogger().info("Stopping core");
         getCore().getLogger().info("Stopping scheduler (If the application got into infinite loop, please kill this process!)");
         ((SchedulerImpl) getCore().getScheduler()).shutdown();
@@ -473,6 +504,10 @@ public class KBCClient {
         return networkClient;
     }
 
+    public MessageUpdateCoalescer getMessageUpdateCoalescer() {
+        return messageUpdateCoalescer;
+    }
+
     public Session getSession() {
         return session;
     }
@@ -481,6 +516,19 @@ public class KBCClient {
         return eventExecutor;
     }
 
+    // Return null if the coalescing is disabled.
+    public EventCoalescer getEventCoalescer() {
+        return eventCoalescer;
+    }
+
+    public HandlerTimings getHandlerTimings() {
+        return handlerTimings;
+    }
+
+    public EventDispatcher getEventDispatcher() {
+        return eventDispatcher;
+    }
+
     public EventFactory getEventFactory() {
         return eventFactory;
     }
@@ -503,6 +551,9 @@ public class KBCClient {
         if (commandConfig.getBoolean("plugins", true)) {
             registerPluginsCommand();
         }
+        if (commandConfig.getBoolean("timings", true)) {
+            registerTimingsCommand();
+        }
     }
 
     protected void registerStopCommand() {
@@ -512,6 +563,31 @@ public class KBCClient {
                 .register(getInternalPlugin());
     }
 
+    protected void registerTimingsCommand() {
+        new JKookCommand("timings")
+                .setDescription("查看各插件事件处理器与命令的耗时统计。使用 \"timings reset\" 清空统计。")
+                .setExecutor(wrapConsoleCmd((args) -> {
+                    if (args.length > 0 && "reset".equals(args[0])) {
+                        handlerTimings.reset();
+                        getCore().getLogger().info("Handler timings have been reset.");
+                        return;
+                    }
+                    if (handlerTimings.isEnabled()) {
+                        for (String line : handlerTimings.report()) {
+                            getCore().getLogger().info(line);
+                        }
+                    } else {
+                        getCore().getLogger().info("Handler timings are disabled. Set \"handler-timings\" to true in kbc.yml to enable it.");
+                    }
+                    if (eventDispatcher instanceof LaneEventDispatcher) { // how long the events waited for a thread
+                        for (Map.Entry<Lane, LaneStats> entry : ((LaneEventDispatcher) eventDispatcher).getStats().entrySet()) {
+                            getCore().getLogger().info("  Lane {}: {}", entry.getKey(), entry.getValue());
+                        }
+                    }
+                }))
+                .register(getInternalPlugin());
+    }
+
     protected void registerPluginsCommand() {
 //        new JKookCommand("plugins")
 //                .setDescription("获取已安装到此 " + SharedConstants.IMPL_NAME + " 实例的插件列表。")
@@ -524,14 +600,15 @@ public class KBCClient {
     }
 
     protected void registerHelpCommand() {
-        HelpCommand executor = new HelpCommand(this);
+        HelpPages pages = new HelpPages(this); // shared, so the page templates are built once
+        HelpCommand executor = new HelpCommand(this, pages);
         new JKookCommand("help")
                 .setDescription("获取此帮助列表。")
                 .executesUser(executor)
                 .executesConsole(executor)
                 .register(getInternalPlugin());
         this.core.getEventManager()
-                .registerHandlers(this.internalPlugin, new UserClickButtonListener(this));
+                .registerHandlers(this.internalPlugin, new UserClickButtonListener(this, pages));
     }
 
     public CommandManager getCommandManager() {
@@ -25,6 +25,7 @@ import snw.jkook.entity.channel.TextChannel;
 import snw.jkook.message.Message;
 import snw.jkook.plugin.Plugin;
 import snw.kookbc.impl.KBCClient;
+import snw.kookbc.impl.event.HandlerTimings;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -223,6 +224,8 @@ public class CommandManagerImpl implements CommandManager {
 
         // maybe some commands don't have subcommand?
         JKookCommand finalCommand = (actualCommand == null) ? commandObject.getCommand() : actualCommand;
+        final HandlerTimings.Timing timing = client.getHandlerTimings()
+                .getTiming(owner.getDescription().getName(), "command " + commandObject.getCommand().getRootName());
 
         Object[] arguments;
         try {
@@ -256,7 +259,7 @@ public class CommandManagerImpl implements CommandManager {
             if (consoleCommandExecutor != null) {
                 exec(
                         () -> consoleCommandExecutor.onCommand(realSender, arguments),
-                        startTimeStamp, cmdLine
+                        startTimeStamp, cmdLine, timing
                 );
                 return true;
             }
@@ -266,7 +269,7 @@ public class CommandManagerImpl implements CommandManager {
             if (userCommandExecutor != null) {
                 exec(
                         () -> userCommandExecutor.onCommand((User) sender, arguments, msg),
-                        startTimeStamp, cmdLine
+                        startTimeStamp, cmdLine, timing
                 );
                 return true;
             }
@@ -286,7 +289,7 @@ public class CommandManagerImpl implements CommandManager {
         // alright, it is time to execute it!
         exec(
                 () -> executor.onCommand(sender, arguments, msg),
-                startTimeStamp, cmdLine
+                startTimeStamp, cmdLine, timing
         );
         return true; // ok, the command is ok, so we can return true.
     }
@@ -435,7 +438,8 @@ public class CommandManagerImpl implements CommandManager {
     }
 
     // execute the runnable, if it fails, a CommandException will be thrown
-    private void exec(Runnable runnable, long startTimeStamp, String cmdLine) throws CommandException {
+    private void exec(Runnable runnable, long startTimeStamp, String cmdLine, HandlerTimings.Timing timing) throws CommandException {
+        final HandlerTimings.Slot slot = client.getHandlerTimings().start(timing);
         try {
             runnable.run();
         } catch (Throwable e) {
@@ -444,6 +448,8 @@ public class CommandManagerImpl implements CommandManager {
             // it is easy to understand. NoClassDefError? NoSuchMethodError?
             // It is OutOfMemoryError? nothing matters lol.
             throw new CommandException("Something unexpected happened.", e);
+        } finally {
+            client.getHandlerTimings().finish(slot);
         }
         // Do not put this in the try statement because we don't know if the logging system will throw an exception.
         client.getCore().getLogger().debug("The execution of command line \"{}\" is done, time elapsed: {}ms", cmdLine, System.currentTimeMillis() - startTimeStamp);
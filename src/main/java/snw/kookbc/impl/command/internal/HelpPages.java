@@ -0,0 +1,153 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.command.internal;
+
+import snw.jkook.message.component.BaseComponent;
+import snw.jkook.message.component.card.CardBuilder;
+import snw.jkook.message.component.card.Size;
+import snw.jkook.message.component.card.Theme;
+import snw.jkook.message.component.card.element.ButtonElement;
+import snw.jkook.message.component.card.element.MarkdownElement;
+import snw.jkook.message.component.card.element.PlainTextElement;
+import snw.jkook.message.component.card.module.*;
+import snw.kookbc.SharedConstants;
+import snw.kookbc.impl.KBCClient;
+import snw.kookbc.impl.network.JsonStringContent;
+import snw.kookbc.impl.serializer.component.card.CardTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static snw.kookbc.impl.command.internal.HelpCommand.EMPTY_PLAIN_TEXT_ELEMENT;
+import static snw.kookbc.impl.command.internal.HelpCommand.HELP_VALUE_HEADER;
+
+// The pages of the command list in the help card.
+// A page is rendered from the template of its shape (the amount of lines, the state of the page buttons and the ad).
+// There are only a few shapes, so each of them is built and serialized once,
+//  then the page clicks only splice the title, the lines and the button values into it.
+public final class HelpPages {
+    public static final int LINES_PER_PAGE = 5;
+    private final KBCClient client;
+    private final Map<String, CardTemplate> templates = new ConcurrentHashMap<>();
+
+    public HelpPages(KBCClient client) {
+        this.client = client;
+    }
+
+    // The provided lines should not contain the stop command.
+    public JsonStringContent render(List<String> lines, int page, int totalPages, String messageType) {
+        final boolean paged = lines.size() > LINES_PER_PAGE;
+        final List<String> pageLines = getPageLines(lines, page);
+        final boolean hasPrevious = page > 1;
+        final boolean hasNext = (LINES_PER_PAGE * page) < lines.size();
+        final boolean ad = client.getConfig().getBoolean("allow-help-ad", true);
+
+        final CardTemplate template = templates.computeIfAbsent(
+                pageLines.size() + ":" + (paged ? (hasPrevious + ":" + hasNext) : "single") + ":" + ad,
+                k -> CardTemplate.compile(buildCard(pageLines.size(), paged, hasPrevious, hasNext, ad, CardTemplate::slot))
+        );
+        return template.renderContent(getValues(pageLines, page, totalPages, paged, messageType));
+    }
+
+    // Same as render, but builds the card component instead of the JSON.
+    // Used for the messages that do not accept pre-serialized content (not a MessageImpl).
+    public BaseComponent build(List<String> lines, int page, int totalPages, String messageType) {
+        final boolean paged = lines.size() > LINES_PER_PAGE;
+        final List<String> pageLines = getPageLines(lines, page);
+        final Map<String, String> values = getValues(pageLines, page, totalPages, paged, messageType);
+        return buildCard(pageLines.size(), paged, page > 1, (LINES_PER_PAGE * page) < lines.size(),
+                client.getConfig().getBoolean("allow-help-ad", true), values::get);
+    }
+
+    private static List<String> getPageLines(List<String> lines, int page) {
+        return lines.size() > LINES_PER_PAGE
+                ? lines.subList(Math.min(LINES_PER_PAGE * (page - 1), lines.size()), Math.min(LINES_PER_PAGE * page, lines.size()))
+                : lines;
+    }
+
+    private static Map<String, String> getValues(List<String> pageLines, int page, int totalPages, boolean paged, String messageType) {
+        final Map<String, String> values = new HashMap<>();
+        values.put("title", String.format("命令帮助 (%d/%d)", page, totalPages));
+        for (int i = 0; i < pageLines.size(); i++) {
+            values.put("line" + i, pageLines.get(i));
+        }
+        if (paged) {
+            values.put("previous", String.format(HELP_VALUE_HEADER + "{\"page\": %d, \"current\": %d, \"messageType\": %s}", page - 1, page, messageType));
+            values.put("next", String.format(HELP_VALUE_HEADER + "{\"page\": %d, \"current\": %d, \"messageType\": %s}", page + 1, page, messageType));
+        }
+        return values;
+    }
+
+    // text: the content of the named slot, e.g. CardTemplate::slot for the templates.
+    private BaseComponent buildCard(int lines, boolean paged, boolean hasPrevious, boolean hasNext, boolean ad,
+                                    Function<String, String> text) {
+        CardBuilder builder = new CardBuilder()
+                .setTheme(Theme.SUCCESS)
+                .setSize(Size.LG)
+                .addModule(new HeaderModule(text.apply("title")))
+                .addModule(DividerModule.INSTANCE);
+        for (int i = 0; i < lines; i++) {
+            builder.addModule(new SectionModule(text.apply("line" + i)));
+        }
+        if (paged) {
+            builder.addModule(DividerModule.INSTANCE)
+                    .addModule(new ActionGroupModule(
+                            Arrays.asList(
+                                    new ButtonElement(
+                                            Theme.PRIMARY,
+                                            text.apply("previous"),
+                                            hasPrevious ? ButtonElement.EventType.RETURN_VAL : ButtonElement.EventType.NO_ACTION,
+                                            new PlainTextElement("上一页")
+                                    ),
+                                    new ButtonElement(Theme.SECONDARY, "", EMPTY_PLAIN_TEXT_ELEMENT), // Placeholder
+                                    new ButtonElement(Theme.SECONDARY, "", EMPTY_PLAIN_TEXT_ELEMENT), // Placeholder
+                                    new ButtonElement(
+                                            Theme.PRIMARY,
+                                            text.apply("next"),
+                                            hasNext ? ButtonElement.EventType.RETURN_VAL : ButtonElement.EventType.NO_ACTION,
+                                            new PlainTextElement("下一页")
+                                    )
+                            )
+                    ));
+        }
+        if (ad) {
+            builder.addModule(DividerModule.INSTANCE)
+                    .addModule(new ContextModule(
+                            Collections.singletonList(
+                                    new MarkdownElement(
+                                            String.format(
+                                                    "由 [%s](%s) v%s 驱动 - %s API %s",
+                                                    SharedConstants.IMPL_NAME,
+                                                    SharedConstants.REPO_URL,
+                                                    SharedConstants.IMPL_VERSION,
+                                                    SharedConstants.SPEC_NAME,
+                                                    client.getCore().getAPIVersion()
+                                            )
+                                    )
+                            )
+                    ));
+        }
+        return builder.build();
+    }
+}
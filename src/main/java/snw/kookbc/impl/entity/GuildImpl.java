@@ -374,6 +374,20 @@ public class GuildImpl implements Guild, Updatable {
             ownerId = get(data, "user_id").getAsString();
         }
     }
+
+    // Compared by ID, so the lazy handles (see LazyEntity) and the loaded instances are equal both ways.
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        return obj instanceof Guild && id.equals(((Guild) obj).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
 }
 
 // Just a JavaBean that contains the boost information.
@@ -0,0 +1,109 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.entity;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+// A handle of an entity that is loaded on the first method call,
+//  except getId(), equals(), hashCode() and toString(), which are answered from the type and the ID.
+// The entities are compared by ID (see UserImpl#equals), so a handle equals the loaded entity both ways.
+// Used by the event deserializers, so a cache miss won't cost an HTTP request on the event thread
+//  if nobody touches the entity.
+// The handle only implements the requested type, so a channel handle (NonCategoryChannel)
+//  is never an instance of TextChannel or VoiceChannel, the concrete type is unknown until it is loaded.
+public final class LazyEntity<T> implements InvocationHandler {
+    private final Class<T> type;
+    private final String id;
+    private final Supplier<T> loader;
+    private volatile T target;
+
+    private LazyEntity(Class<T> type, String id, Supplier<T> loader) {
+        this.type = type;
+        this.id = id;
+        this.loader = loader;
+    }
+
+    // The type should have a getId() method returning String.
+    @SuppressWarnings("unchecked")
+    public static <T> T of(Class<T> type, String id, Supplier<T> loader) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new LazyEntity<>(type, id, loader));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        final String name = method.getName();
+        final int argc = args == null ? 0 : args.length;
+        if (argc == 0) {
+            switch (name) {
+                case "getId":
+                    return id;
+                case "hashCode":
+                    return id.hashCode();
+                case "toString":
+                    return type.getSimpleName() + "{id=" + id + '}';
+            }
+        }
+        if (argc == 1 && name.equals("equals") && method.getParameterTypes()[0] == Object.class) {
+            final Object other = args[0];
+            return proxy == other || (type.isInstance(other) && id.equals(idOf(other)));
+        }
+        try {
+            return method.invoke(get(), args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private T get() {
+        T result = target;
+        if (result == null) {
+            synchronized (this) {
+                result = target;
+                if (result == null) {
+                    result = loader.get();
+                    if (result == null) {
+                        throw new NoSuchElementException("Unable to load the entity with ID " + id);
+                    }
+                    target = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    // The other object is an instance of the type, so it has getId().
+    private Object idOf(Object object) throws Throwable {
+        if (Proxy.isProxyClass(object.getClass())) {
+            final InvocationHandler handler = Proxy.getInvocationHandler(object);
+            if (handler instanceof LazyEntity) {
+                return ((LazyEntity<?>) handler).id;
+            }
+        }
+        try {
+            return type.getMethod("getId").invoke(object);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
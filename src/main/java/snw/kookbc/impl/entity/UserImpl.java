@@ -166,13 +166,16 @@ public class UserImpl implements User, Updatable {
 
     @Override
     public String sendPrivateMessage(BaseComponent component, PrivateMessage quote) {
-        Object[] serialize = MessageBuilder.serialize(component);
-        int type = (int) serialize[0];
-        String json = (String) serialize[1];
+        Object[] serialize = MessageBuilder.serializeContent(component);
+        return sendPrivateContent((int) serialize[0], serialize[1], quote);
+    }
+
+    // Send the serialized content (see MessageBuilder#serializeContent and CardTemplate) to this user.
+    public String sendPrivateContent(int type, Object content, @Nullable PrivateMessage quote) {
         Map<String, Object> body = new MapBuilder()
                 .put("type", type)
                 .put("target_id", getId())
-                .put("content", json)
+                .put("content", content)
                 .putIfNotNull("quote", quote, Message::getId)
                 .build();
         return client.getNetworkClient().post(HttpAPIRoute.USER_CHAT_MESSAGE_CREATE.toFullURL(), body).get("msg_id").getAsString();
@@ -328,6 +331,20 @@ public class UserImpl implements User, Updatable {
             vip = get(data, "is_vip").getAsBoolean();
         }
     }
+
+    // Compared by ID, so the lazy handles (see LazyEntity) and the loaded instances are equal both ways.
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        return obj instanceof User && id.equals(((User) obj).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
 }
 
 class IntimacyInfoImpl implements User.IntimacyInfo {
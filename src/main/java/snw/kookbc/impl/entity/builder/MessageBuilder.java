@@ -20,8 +20,8 @@ package snw.kookbc.impl.entity.builder;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 import snw.jkook.entity.User;
-import snw.jkook.entity.channel.Channel;
 import snw.jkook.entity.channel.NonCategoryChannel;
 import snw.jkook.entity.channel.TextChannel;
 import snw.jkook.message.ChannelMessage;
@@ -37,34 +37,49 @@ import snw.jkook.message.component.card.MultipleCardComponent;
 import snw.jkook.message.component.card.Size;
 import snw.jkook.message.component.card.Theme;
 import snw.jkook.message.component.card.module.FileModule;
+import snw.kookbc.impl.HttpAPIImpl;
 import snw.kookbc.impl.KBCClient;
 import snw.kookbc.impl.message.ChannelMessageImpl;
+import snw.kookbc.impl.message.LazyComponent;
+import snw.kookbc.impl.message.LazyQuote;
 import snw.kookbc.impl.message.PrivateMessageImpl;
 import snw.kookbc.impl.message.QuoteImpl;
 import snw.kookbc.impl.message.TextChannelMessageImpl;
+import snw.kookbc.impl.serializer.component.card.CardWriter;
 
+import java.io.IOException;
 import java.util.NoSuchElementException;
+import java.util.function.Supplier;
 
-import static snw.kookbc.util.GsonUtil.CARD_GSON;
 import static snw.kookbc.util.GsonUtil.get;
 
 public class MessageBuilder {
     private final KBCClient client;
+    private final int maxQuoteDepth;
 
     public MessageBuilder(KBCClient client) {
         this.client = client;
+        this.maxQuoteDepth = client.getConfig().getInt("quote-max-depth", 5);
     }
 
     // result format: {type, json}
+    // Same as serialize(BaseComponent), but the content of card messages is a JsonStringContent,
+    //  which will be written straight into the request body by NetworkClient.
+    // Use this if the content is only used as a value of the request body.
+    public static Object[] serializeContent(BaseComponent component) {
+        if (component instanceof CardComponent || component instanceof MultipleCardComponent) {
+            return new Object[]{10, CardWriter.asContent(component)};
+        }
+        return serialize(component);
+    }
+
     public static Object[] serialize(BaseComponent component) {
         if (component instanceof MarkdownComponent) {
             return new Object[]{9, component.toString()};
         } else if (component instanceof TextComponent) {
             return new Object[]{1, component.toString()};
-        } else if (component instanceof CardComponent) {
-            return new Object[]{10, CARD_GSON.toJson(CardBuilder.serialize((CardComponent) component))};
-        } else if (component instanceof MultipleCardComponent) {
-            return new Object[]{10, CARD_GSON.toJson(CardBuilder.serialize((MultipleCardComponent) component))};
+        } else if (component instanceof CardComponent || component instanceof MultipleCardComponent) {
+            return new Object[]{10, CardWriter.toJson(component)};
         } else if (component instanceof FileComponent) {
             FileComponent fileComponent = (FileComponent) component;
             MultipleCardComponent fileCard;
@@ -101,22 +116,13 @@ public class MessageBuilder {
         }
         quote = quote1;
         if (quote == null) {
-            return new PrivateMessageImpl(client, id, author, buildComponent(object), timeStamp, null);
+            return PrivateMessageImpl.lazy(client, id, author, buildLazyComponent(object), timeStamp, null);
         }
         final String quoteId = get(quote, "rong_id").getAsString();
-        Message quoteObject;
-        Message quoteFromCache = client.getStorage().getMessage(quoteId);
-        if (quoteFromCache != null) {
-            quoteObject = quoteFromCache; // prevent resource leak
-        } else {
-            try {
-                quoteObject = client.getCore().getHttpAPI().getPrivateMessage(author, quoteId);
-            } catch (NoSuchElementException e) {
-                quoteObject = buildQuote(quote);
-            }
-        }
+        final Message quoteObject = buildLazyQuote(PrivateMessage.class, quote, quoteId, 1,
+                () -> ((HttpAPIImpl) client.getCore().getHttpAPI()).getPrivateMessage(author, quoteId, 1));
 
-        return new PrivateMessageImpl(client, id, author, buildComponent(object), timeStamp, quoteObject);
+        return PrivateMessageImpl.lazy(client, id, author, buildLazyComponent(object), timeStamp, quoteObject);
     }
 
     public ChannelMessage buildChannelMessage(JsonObject object) {
@@ -124,7 +130,7 @@ public class MessageBuilder {
         final JsonObject extra = get(object, "extra").getAsJsonObject();
         JsonObject authorObj = get(extra, "author").getAsJsonObject();
         User author = client.getStorage().getUser(get(authorObj, "id").getAsString(), authorObj);
-        Channel channel = client.getStorage().getChannel(get(object, "target_id").getAsString());
+        NonCategoryChannel channel = client.getStorage().getLazyChannel(get(object, "target_id").getAsString());
         long timeStamp = get(object, "msg_timestamp").getAsLong();
         final JsonObject quote;
         JsonObject quote1;
@@ -135,34 +141,108 @@ public class MessageBuilder {
         }
         quote = quote1;
         if (quote == null) {
-            return new ChannelMessageImpl(client, id, author, buildComponent(object), timeStamp, null, (NonCategoryChannel) channel);
+            return ChannelMessageImpl.lazy(client, id, author, buildLazyComponent(object), timeStamp, null, channel);
         }
         final String quoteId = get(quote, "rong_id").getAsString();
-        Message quoteObject;
-        Message quoteFormCache = client.getStorage().getMessage(quoteId);
-        if (quoteFormCache != null) {
-            quoteObject = quoteFormCache;
-        } else {
-            try {
-                quoteObject = client.getCore().getHttpAPI().getChannelMessage(quoteId);
-            } catch (NoSuchElementException e) {
-                quoteObject = buildQuote(quote);
+        final Message quoteObject = buildLazyQuote(ChannelMessage.class, quote, quoteId, 1,
+                () -> ((HttpAPIImpl) client.getCore().getHttpAPI()).getChannelMessage(quoteId, 1));
+
+        return ChannelMessageImpl.lazy(client, id, author, buildLazyComponent(object), timeStamp, quoteObject, channel);
+    }
+
+    // Read the fields that we use to build a message from the stream,
+    //  the result can be passed to buildChannelMessage or buildPrivateMessage.
+    // The reader should be positioned at the "d" object of a message event.
+    // The other fields (e.g. "kmarkdown" and "mention", the largest part of most messages) are skipped,
+    //  so only the small objects (author, quote, attachments) are built into JSON trees.
+    public static JsonObject readMessage(JsonReader reader) throws IOException {
+        final JsonObject result = new JsonObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            switch (name) {
+                case "msg_id":
+                case "target_id":
+                case "msg_timestamp":
+                case "type":
+                case "content":
+                    result.add(name, JsonParser.parseReader(reader));
+                    break;
+                case "extra":
+                    result.add(name, readMessageExtra(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return result;
+    }
+
+    private static JsonObject readMessageExtra(JsonReader reader) throws IOException {
+        final JsonObject result = new JsonObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            switch (name) {
+                case "author":
+                case "quote":
+                case "attachments":
+                    result.add(name, JsonParser.parseReader(reader));
+                    break;
+                default:
+                    reader.skipValue();
             }
         }
+        reader.endObject();
+        return result;
+    }
 
-        return new ChannelMessageImpl(client, id, author, buildComponent(object), timeStamp, quoteObject, (NonCategoryChannel) channel);
+    // Build the quote of a message, the message is at the provided depth of the quote chain
+    //  (the message from an event is at depth 0, its quote is at depth 1, and so on).
+    // The full message is loaded by the loader only when it is needed, see LazyQuote.
+    // Return null if the quote is too deep.
+    public <T extends Message> Message buildLazyQuote(Class<T> type, JsonObject rawQuote, String quoteId, int depth, Supplier<? extends T> loader) {
+        if (depth > maxQuoteDepth) {
+            return null;
+        }
+        final Message quoteFromCache = client.getStorage().getMessage(quoteId);
+        if (type.isInstance(quoteFromCache)) {
+            return quoteFromCache; // prevent resource leak
+        }
+        return LazyQuote.of(type, buildQuote(rawQuote, quoteId), loader);
     }
 
     public Message buildQuote(JsonObject object) {
         if (object == null) return null;
 
         String id = get(object, "rong_id").getAsString(); // WARNING: this is not described in Kook developer document, maybe unavailable in the future
+        return buildQuote(object, id);
+    }
 
-        BaseComponent component = buildComponent(object);
+    private Message buildQuote(JsonObject object, String id) {
+        LazyComponent component = buildLazyComponent(object);
         long timeStamp = get(object, "create_at").getAsLong();
         JsonObject rawUser = get(object, "author").getAsJsonObject();
         User author = client.getStorage().getUser(get(rawUser, "id").getAsString(), rawUser);
-        return new QuoteImpl(component, id, author, timeStamp);
+        return QuoteImpl.lazy(component, id, author, timeStamp);
+    }
+
+    // Same as buildComponent, but the cards are decoded only when they are used.
+    public LazyComponent buildLazyComponent(JsonObject object) {
+        if (get(object, "type").getAsInt() == 10) {
+            return new LazyComponent(get(object, "content").getAsString(), MessageBuilder::buildCardComponent);
+        }
+        return LazyComponent.of(buildComponent(object));
+    }
+
+    private static BaseComponent buildCardComponent(String content) {
+        MultipleCardComponent card = CardBuilder.buildCard(JsonParser.parseString(content).getAsJsonArray());
+        if (card.getComponents().size() == 1) {
+            return card.getComponents().get(0);
+        } else {
+            return card;
+        }
     }
 
     public BaseComponent buildComponent(JsonObject object) {
@@ -172,12 +252,7 @@ public class MessageBuilder {
             case 9:
                 return new MarkdownComponent(content);
             case 10:
-                MultipleCardComponent card = CardBuilder.buildCard(JsonParser.parseString(content).getAsJsonArray());
-                if (card.getComponents().size() == 1) {
-                    return card.getComponents().get(0);
-                } else {
-                    return card;
-                }
+                return buildCardComponent(content);
             case 2:
             case 3:
             case 4:
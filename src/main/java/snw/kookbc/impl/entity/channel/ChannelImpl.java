@@ -207,7 +207,7 @@ public abstract class ChannelImpl implements Channel, Updatable {
     @Nullable
     public UserPermissionOverwrite getUserPermissionOverwriteByUser(User user) {
         for (UserPermissionOverwrite o : getOverwrittenUserPermissions()) {
-            if (o.getUser() == user) {
+            if (o.getUser().getId().equals(user.getId())) { // the user may be a LazyEntity
                 return o;
             }
         }
@@ -107,11 +107,16 @@ public abstract class NonCategoryChannelImpl extends ChannelImpl implements NonC
 
     @Override
     public String sendComponent(BaseComponent component, @Nullable ChannelMessage quote, @Nullable User tempTarget) {
-        Object[] result = MessageBuilder.serialize(component);
+        Object[] result = MessageBuilder.serializeContent(component);
+        return sendContent((int) result[0], result[1], quote, tempTarget);
+    }
+
+    // Send the serialized content (see MessageBuilder#serializeContent and CardTemplate) to this channel.
+    public String sendContent(int type, Object content, @Nullable ChannelMessage quote, @Nullable User tempTarget) {
         Map<String, Object> body = new MapBuilder()
                 .put("target_id", getId())
-                .put("type", result[0])
-                .put("content", result[1])
+                .put("type", type)
+                .put("content", content)
                 .putIfNotNull("quote", quote, Message::getId)
                 .putIfNotNull("temp_target_id", tempTarget, User::getId)
                 .build();
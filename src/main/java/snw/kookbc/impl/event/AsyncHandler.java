@@ -0,0 +1,35 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.event;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Run the event handler on the threads of its plugin instead of the event executor thread,
+//  so a slow handler (e.g. one doing blocking HTTP calls) won't delay the events of the other plugins.
+// Put it on an event handler method, or on the listener class to apply it to all the handlers in it.
+// The events with the same ordering key (the guild, or the user for private messages) are still handled in order.
+// The internal handlers (EventHandler#internal) are always called synchronously.
+// See the "plugin-async" section in kbc.yml for the threads and the queue of each plugin.
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface AsyncHandler {
+}
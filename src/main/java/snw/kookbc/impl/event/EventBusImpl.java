@@ -0,0 +1,193 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.event;
+
+import org.jetbrains.annotations.Nullable;
+import snw.jkook.event.Event;
+import snw.jkook.event.Listener;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.function.Supplier;
+
+// The event bus of KookBC.
+// For each concrete event class, the handlers accepting it are compiled into a flat array sorted by post order.
+// The arrays are rebuilt (copy-on-write) only when the handlers are changed,
+//  so posting an event is a plain array walk, and nothing is allocated unless a handler throws.
+public final class EventBusImpl {
+    private static final Subscriber[] EMPTY = new Subscriber[0];
+    private final Object lock = new Object();
+    private final List<Subscriber> subscribers = new ArrayList<>(); // guarded by lock, in registration order
+    // immutable, replaced when it should be changed
+    private volatile Map<Class<?>, Subscriber[]> dispatch = Collections.emptyMap();
+    private final HandlerTimings timings;
+
+    public EventBusImpl() {
+        this(null);
+    }
+
+    // If the timings are provided, the handlers registered with an owner will be timed.
+    public EventBusImpl(@Nullable HandlerTimings timings) {
+        this.timings = timings;
+    }
+
+    // All handlers of the listener are created before any of them is registered,
+    //  so a failed registration leaves nothing behind.
+    public void register(Listener listener) {
+        register(listener, null, null, false);
+    }
+
+    // The async handlers (see AsyncHandler) will be executed by the executor from the provided supplier,
+    //  it is only called if there is an async handler. If it is null, all handlers are synchronous.
+    // If asyncByDefault is true, all handlers except the internal ones are async.
+    // The owner is the name of the plugin, used by the timings.
+    public void register(Listener listener, @Nullable String owner, @Nullable Supplier<PluginEventExecutor> asyncExecutor, boolean asyncByDefault) {
+        final List<Subscriber> created = new ArrayList<>();
+        for (Method method : listener.getClass().getDeclaredMethods()) {
+            if (!MethodScannerImpl.INSTANCE.shouldRegister(listener, method)) {
+                continue;
+            }
+            if (method.getParameterCount() != 1) {
+                throw new IllegalArgumentException("Unable to create an event handler for method '" + method + "'. Method must have only one parameter.");
+            }
+            final Class<?> type = method.getParameterTypes()[0];
+            if (!Event.class.isAssignableFrom(type)) {
+                throw new IllegalArgumentException("Method '" + method + "' parameter type must be a subtype of " + Event.class.getName());
+            }
+            final EventExecutor executor;
+            try {
+                final PluginEventExecutor async = asyncExecutor != null
+                        && MethodScannerImpl.INSTANCE.isAsync(listener, method, asyncByDefault)
+                        ? asyncExecutor.get() : null;
+                final HandlerTimings.Timing timing = timings != null && owner != null
+                        ? timings.getTiming(owner, handlerName(method, type)) : null;
+                executor = EventExecutorFactoryImpl.INSTANCE.create(listener, method, async, timing);
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Encountered an exception while creating an event handler for method '" + method + "'", e);
+            }
+            created.add(new Subscriber(listener, method, type, MethodScannerImpl.INSTANCE.postOrder(listener, method), executor));
+        }
+        if (created.isEmpty()) {
+            return;
+        }
+        synchronized (lock) {
+            subscribers.addAll(created);
+            rebuild();
+        }
+    }
+
+    private static String handlerName(Method method, Class<?> type) {
+        return method.getDeclaringClass().getName() + "#" + method.getName() + "(" + type.getSimpleName() + ")";
+    }
+
+    public void unregister(Listener listener) {
+        synchronized (lock) {
+            if (subscribers.removeIf(it -> it.listener == listener)) {
+                rebuild();
+            }
+        }
+    }
+
+    // Call the handlers of the event, return the exceptions thrown by them. (empty if nothing went wrong)
+    public List<Throwable> post(Event event) {
+        List<Throwable> exceptions = null;
+        for (Subscriber subscriber : getSubscribers(event.getClass())) {
+            try {
+                subscriber.executor.execute(event);
+            } catch (Throwable e) {
+                if (exceptions == null) {
+                    exceptions = new ArrayList<>(1);
+                }
+                exceptions.add(e);
+            }
+        }
+        return exceptions == null ? Collections.emptyList() : exceptions;
+    }
+
+    public boolean hasSubscribers(Class<? extends Event> type) {
+        return getSubscribers(type).length > 0;
+    }
+
+    private Subscriber[] getSubscribers(Class<?> type) {
+        final Subscriber[] result = dispatch.get(type);
+        if (result != null) {
+            return result;
+        }
+        // first time we see this class, compile its array
+        synchronized (lock) {
+            final Map<Class<?>, Subscriber[]> current = dispatch;
+            Subscriber[] computed = current.get(type);
+            if (computed == null) {
+                computed = compile(type);
+                final Map<Class<?>, Subscriber[]> copy = new HashMap<>(current);
+                copy.put(type, computed);
+                dispatch = copy;
+            }
+            return computed;
+        }
+    }
+
+    // Must be called with the lock held.
+    private void rebuild() {
+        final Map<Class<?>, Subscriber[]> copy = new HashMap<>(dispatch.size());
+        for (Class<?> type : dispatch.keySet()) {
+            copy.put(type, compile(type));
+        }
+        dispatch = copy;
+    }
+
+    // Must be called with the lock held.
+    private Subscriber[] compile(Class<?> type) {
+        final List<Subscriber> result = new ArrayList<>();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.type.isAssignableFrom(type)) {
+                result.add(subscriber);
+            }
+        }
+        if (result.isEmpty()) {
+            return EMPTY;
+        }
+        result.sort(Comparator.comparingInt(it -> it.postOrder)); // stable, keeps the registration order
+        return result.toArray(EMPTY);
+    }
+
+    static final class Subscriber {
+        private final Listener listener;
+        private final Method method;
+        private final Class<?> type;
+        private final int postOrder;
+        private final EventExecutor executor;
+
+        private Subscriber(Listener listener, Method method, Class<?> type, int postOrder, EventExecutor executor) {
+            this.listener = listener;
+            this.method = method;
+            this.type = type;
+            this.postOrder = postOrder;
+            this.executor = executor;
+        }
+
+        @Override
+        public String toString() {
+            return "Subscriber{" +
+                    "method=" + method +
+                    ", postOrder=" + postOrder +
+                    '}';
+        }
+    }
+}
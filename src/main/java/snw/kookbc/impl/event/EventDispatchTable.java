@@ -0,0 +1,187 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.event;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import snw.jkook.event.Event;
+import snw.jkook.event.channel.ChannelMessageEvent;
+import snw.jkook.event.guild.GuildInfoUpdateEvent;
+import snw.jkook.event.guild.GuildUserNickNameUpdateEvent;
+import snw.jkook.event.item.ItemConsumedEvent;
+import snw.jkook.event.pm.PrivateMessageReceivedEvent;
+import snw.kookbc.impl.network.PayloadHeader;
+import snw.kookbc.impl.serializer.event.StreamingEventDeserializer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+// Resolves the wire type of the event frames (the "type" field in the "extra" object,
+//  and "channel_type" for the messages) to everything we need to create the event,
+//  so the resolution costs one map lookup per frame.
+// The table is built once, only the subscription flags and the scope filters are refreshed
+//  when the handlers are changed.
+public class EventDispatchTable {
+    private final EventManagerImpl eventManager;
+    private final Map<Class<? extends Event>, Entry> entries = new HashMap<>();
+    private final Map<String, Entry> systemEvents = new HashMap<>();
+    private final Entry channelMessage;
+    private final Entry privateMessage;
+    private final Entry itemConsumed;
+
+    public EventDispatchTable(EventManagerImpl eventManager, Gson gson, Map<Class<? extends Event>, StreamingEventDeserializer<?>> streamingDeserializers) {
+        this.eventManager = eventManager;
+        for (Map.Entry<String, Class<? extends Event>> e : EventTypeMap.MAP.entrySet()) {
+            systemEvents.put(e.getKey(), entry(e.getValue(), gson, streamingDeserializers));
+        }
+        this.channelMessage = entry(ChannelMessageEvent.class, gson, streamingDeserializers);
+        this.privateMessage = entry(PrivateMessageReceivedEvent.class, gson, streamingDeserializers);
+        this.itemConsumed = entry(ItemConsumedEvent.class, gson, streamingDeserializers);
+        // the nickname updates of the bot come as "updated_guild" with "my_nickname" in the body
+        entries.get(GuildInfoUpdateEvent.class).setVariant(
+                entries.get(GuildUserNickNameUpdateEvent.class),
+                data -> hasBodyField(data, "my_nickname")
+        );
+        refresh();
+    }
+
+    private Entry entry(Class<? extends Event> type, Gson gson, Map<Class<? extends Event>, StreamingEventDeserializer<?>> streamingDeserializers) {
+        return entries.computeIfAbsent(type, t -> new Entry(
+                t,
+                gson.getAdapter(t),
+                streamingDeserializers.get(t),
+                // ensure command system can receive the messages
+                t == ChannelMessageEvent.class || t == PrivateMessageReceivedEvent.class
+        ));
+    }
+
+    // Return null if the type is unknown.
+    public Entry lookup(String type, String channelType) {
+        if (type == null) {
+            return null;
+        }
+        final Entry entry = systemEvents.get(type);
+        if (entry != null) {
+            return entry;
+        }
+        if (!isNumber(type)) {
+            return null;
+        }
+        if ("12".equals(type)) {
+            return itemConsumed;
+        }
+        return "PERSON".equals(channelType) ? privateMessage : channelMessage;
+    }
+
+    public Entry getEntry(Class<? extends Event> type) {
+        return entries.get(type);
+    }
+
+    // Should be called when the handlers are changed.
+    public synchronized void refresh() {
+        for (Entry entry : entries.values()) {
+            entry.subscribed = eventManager.isSubscribed(entry.type);
+            entry.filter = eventManager.getScopeIndex().filterFor(entry.type);
+        }
+    }
+
+    private static boolean hasBodyField(JsonObject data, String name) {
+        final JsonElement extra = data.get("extra");
+        if (extra == null || !extra.isJsonObject()) {
+            return false;
+        }
+        final JsonElement body = extra.getAsJsonObject().get("body");
+        return body != null && body.isJsonObject() && body.getAsJsonObject().has(name);
+    }
+
+    private static boolean isNumber(String type) {
+        if (type.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < type.length(); i++) {
+            final char c = type.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static final class Entry {
+        private final Class<? extends Event> type;
+        private final TypeAdapter<? extends Event> adapter;
+        private final StreamingEventDeserializer<?> streamingDeserializer;
+        private final boolean required;
+        private volatile boolean subscribed;
+        private volatile EventScopeIndex.Filter filter;
+        // the entry to be used instead if the "d" object matches, see resolve()
+        private Entry variant;
+        private Predicate<JsonObject> variantMatcher;
+
+        private Entry(Class<? extends Event> type, TypeAdapter<? extends Event> adapter, StreamingEventDeserializer<?> streamingDeserializer, boolean required) {
+            this.type = type;
+            this.adapter = adapter;
+            this.streamingDeserializer = streamingDeserializer;
+            this.required = required;
+        }
+
+        private void setVariant(Entry variant, Predicate<JsonObject> matcher) {
+            this.variant = variant;
+            this.variantMatcher = matcher;
+        }
+
+        // Return the entry that actually describes the provided "d" object, normally this entry itself.
+        public Entry resolve(JsonObject data) {
+            return variant != null && variantMatcher.test(data) ? variant : this;
+        }
+
+        public Class<? extends Event> getType() {
+            return type;
+        }
+
+        // The adapter for the JSON tree of the frame.
+        public TypeAdapter<? extends Event> getAdapter() {
+            return adapter;
+        }
+
+        // Return null if this type of event can't be created from the JSON stream.
+        public StreamingEventDeserializer<?> getStreamingDeserializer() {
+            return streamingDeserializer;
+        }
+
+        // The variant counts, we don't know which one the frame is before parsing it.
+        public boolean shouldCreate() {
+            return required || subscribed || (variant != null && variant.shouldCreate());
+        }
+
+        // Return true if any handler may be interested in the frame.
+        // The message events are always accepted, the command system needs them.
+        public boolean accepts(PayloadHeader header) {
+            if (required) {
+                return true;
+            }
+            final EventScopeIndex.Filter filter = this.filter;
+            return filter == null || filter.accept(header)
+                    || (variant != null && variant.shouldCreate() && variant.accepts(header));
+        }
+    }
+}
@@ -18,35 +18,88 @@
 
 package snw.kookbc.impl.event;
 
-import net.kyori.event.method.EventExecutor;
-import org.checkerframework.checker.nullness.qual.NonNull;
+import org.jetbrains.annotations.Nullable;
 import snw.jkook.event.Event;
-import snw.jkook.event.Listener;
+import snw.kookbc.impl.network.PayloadHeader;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
-public final class EventExecutorFactoryImpl implements EventExecutor.Factory<Event, Listener> {
+// Creates the executors of event handlers.
+// If possible, the executors are generated classes calling the handlers directly (see GeneratedEventExecutors),
+//  otherwise we fall back to an exact MethodHandle.
+public final class EventExecutorFactoryImpl {
     public static final EventExecutorFactoryImpl INSTANCE = new EventExecutorFactoryImpl();
+    private static final MethodType EXECUTE_TYPE = MethodType.methodType(void.class, Event.class);
+    private static final boolean GENERATOR_AVAILABLE = isGeneratorAvailable();
 
     private EventExecutorFactoryImpl() {
     }
 
-    @Override
-    public @NonNull EventExecutor<Event, Listener> create(@NonNull Object object, @NonNull Method method) throws Exception {
+    // The event type is checked by EventBusImpl, the returned executor won't check it again.
+    public EventExecutor create(Object object, Method method) throws Exception {
+        return create(object, method, null, null);
+    }
+
+    // If the async executor is provided, the handler will be called on it.
+    // The scope is still checked on the posting thread, so the events out of scope are never queued.
+    // If the timing is provided, the calls of the handler will be timed on the thread calling it.
+    public EventExecutor create(Object object, Method method, @Nullable PluginEventExecutor async, @Nullable HandlerTimings.Timing timing) throws Exception {
         method.setAccessible(true);
         final Class<? extends Event> actualEventType = method.getParameterTypes()[0].asSubclass(Event.class);
         if (Modifier.isAbstract(actualEventType.getModifiers())) {
             throw new IllegalArgumentException("You cannot create listener for an abstract event type.");
         }
-        final MethodHandle handle = MethodHandles.lookup().unreflect(method).bindTo(object);
-        return (listener, event) -> {
-            if (!actualEventType.isInstance(event))
-                return;
-            handle.invoke(event);
-        };
+        EventExecutor executor = generate(object, method);
+        if (executor == null) {
+            final MethodHandle handle = MethodHandles.lookup().unreflect(method).bindTo(object).asType(EXECUTE_TYPE);
+            // a block, so invokeExact is called with the (Event)void type, an expression lambda would use (Event)Object
+            executor = event -> {
+                handle.invokeExact(event);
+            };
+        }
+        if (timing != null) {
+            executor = timing.wrap(executor);
+        }
+        if (async != null) {
+            final EventExecutor direct = executor;
+            executor = event -> async.execute(direct, event);
+        }
+        final EventScopeIndex.Spec scope = EventScopeIndex.Spec.of(method);
+        if (scope != null) {
+            final EventExecutor unscoped = executor;
+            return event -> {
+                final PayloadHeader header = EventScopeIndex.currentHeader();
+                if (header != null && !scope.matches(header))
+                    return;
+                unscoped.execute(event);
+            };
+        }
+        return executor;
+    }
+
+    // Return null if the executor can't be generated.
+    private static EventExecutor generate(Object object, Method method) {
+        if (!GENERATOR_AVAILABLE) {
+            return null;
+        }
+        try {
+            return GeneratedEventExecutors.generate(object, method);
+        } catch (Exception | LinkageError e) { // e.g. the class loader of the plugin can't see EventExecutor
+            return null;
+        }
+    }
+
+    private static boolean isGeneratorAvailable() {
+        try {
+            Class.forName("net.bytebuddy.ByteBuddy", false, EventExecutorFactoryImpl.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
     }
 
 }
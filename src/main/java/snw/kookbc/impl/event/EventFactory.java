@@ -21,6 +21,8 @@ package snw.kookbc.impl.event;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 import snw.jkook.event.Event;
 import snw.jkook.event.channel.*;
 import snw.jkook.event.guild.*;
@@ -33,6 +35,10 @@ import snw.jkook.event.role.RoleDeleteEvent;
 import snw.jkook.event.role.RoleInfoUpdateEvent;
 import snw.jkook.event.user.*;
 import snw.kookbc.impl.KBCClient;
+import snw.kookbc.impl.network.Frame;
+import snw.kookbc.impl.network.PayloadHeader;
+import snw.kookbc.impl.network.RawFrame;
+import snw.kookbc.impl.serializer.event.StreamingEventDeserializer;
 import snw.kookbc.impl.serializer.event.channel.*;
 import snw.kookbc.impl.serializer.event.guild.*;
 import snw.kookbc.impl.serializer.event.item.ItemConsumedEventDeserializer;
@@ -44,6 +50,12 @@ import snw.kookbc.impl.serializer.event.role.RoleDeleteEventDeserializer;
 import snw.kookbc.impl.serializer.event.role.RoleInfoUpdateEventDeserializer;
 import snw.kookbc.impl.serializer.event.user.*;
 
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
 import static snw.kookbc.util.GsonUtil.get;
 import static snw.kookbc.util.GsonUtil.has;
 
@@ -51,60 +63,98 @@ public class EventFactory {
     protected final KBCClient client;
     protected final EventManagerImpl eventManager;
     protected final Gson gson;
+    protected final Map<Class<? extends Event>, StreamingEventDeserializer<?>> streamingDeserializers;
+    protected final EventDispatchTable table;
 
     public EventFactory(KBCClient client) {
         this.client = client;
         this.eventManager = ((EventManagerImpl) client.getCore().getEventManager());
         this.gson = createGson();
+        this.streamingDeserializers = createStreamingDeserializers();
+        this.table = new EventDispatchTable(eventManager, gson, streamingDeserializers);
+        eventManager.addSubscriptionListener(table::refresh);
     }
 
-    public Event createEvent(JsonObject object) {
-        final Class<? extends Event> eventType = parseEventType(object);
-        if (eventType == null) {
-            return null; // unknown event type
+    // The frame will be fully parsed only if the event will be created.
+    public Event createEvent(Frame frame) {
+        return createEvent(frame, false);
+    }
+
+    // If force is true, the event will be created even if nobody subscribes to it. (e.g. it is needed by a batch)
+    // The scopes of the handlers are still respected.
+    public Event createEvent(Frame frame, boolean force) {
+        final PayloadHeader header = frame.getHeader();
+        final EventDispatchTable.Entry entry = table.lookup(header.getExtraType(), header.getChannelType());
+        if (entry == null || (!force && !entry.shouldCreate()) || !entry.accepts(header)) {
+            return null;
         }
-        if (!eventManager.isSubscribed(eventType)) {
-            // if not message event, ensure command system can receive event.
-            if (eventType != ChannelMessageEvent.class && eventType != PrivateMessageReceivedEvent.class) {
-                return null;
+        final StreamingEventDeserializer<?> deserializer = entry.getStreamingDeserializer();
+        if (deserializer != null && frame instanceof RawFrame && !((RawFrame) frame).isDataParsed()) {
+            final Supplier<? extends Event> builder = readEvent((RawFrame) frame, deserializer);
+            if (builder != null) {
+                // not guarded by the fallback, the errors here are the same as the errors of the tree-based way
+                return builder.get();
             }
         }
-        if (eventType == GuildInfoUpdateEvent.class) {
-            if (has(
-                    get(get(object, "extra").getAsJsonObject(), "body").getAsJsonObject(),
-                    "my_nickname")) {
-                return this.gson.fromJson(object, GuildUserNickNameUpdateEvent.class); // force convert
-            }
+        return createEvent(frame.getData(), entry);
+    }
+
+    // Parse the raw JSON without building the JSON tree, the returned Supplier builds the event.
+    // Return null if the stream can't be understood, then the caller should use the tree-based way.
+    protected Supplier<? extends Event> readEvent(RawFrame frame, StreamingEventDeserializer<?> deserializer) {
+        try (JsonReader reader = frame.openData()) {
+            return reader == null ? null : deserializer.read(reader);
+        } catch (IOException | IllegalStateException | JsonParseException | NoSuchElementException |
+                 NumberFormatException e) {
+            client.getCore().getLogger().debug("Unable to read the event from stream, falling back to the JSON tree", e);
+            return null;
+        }
+    }
+
+    // Return the type of the event that the frame represents, or null if unknown.
+    // Only the header of the frame is read.
+    public Class<? extends Event> getEventType(Frame frame) {
+        final PayloadHeader header = frame.getHeader();
+        final EventDispatchTable.Entry entry = table.lookup(header.getExtraType(), header.getChannelType());
+        return entry != null ? entry.getType() : null;
+    }
+
+    public Event createEvent(JsonObject object) {
+        final EventDispatchTable.Entry entry = table.lookup(
+                get(get(object, "extra").getAsJsonObject(), "type").getAsString(),
+                has(object, "channel_type") ? get(object, "channel_type").getAsString() : null
+        );
+        if (entry == null || !entry.shouldCreate() || !entry.accepts(PayloadHeader.of(object))) {
+            return null;
         }
-        final Event result = this.gson.fromJson(object, eventType);
+        return createEvent(object, entry);
+    }
+
+    protected Event createEvent(JsonObject object, EventDispatchTable.Entry entry) {
+        entry = entry.resolve(object); // e.g. the nickname updates of the bot come as guild info updates
+        final Event result = entry.getAdapter().fromJsonTree(object);
 
         // why the second condition? see ChannelInfoUpdateEventDeserializer
-        if (result == null && !(eventType == ChannelInfoUpdateEvent.class)) {
+        if (result == null && !(entry.getType() == ChannelInfoUpdateEvent.class)) {
             client.getCore().getLogger().error("We cannot understand the frame.");
             client.getCore().getLogger().error("Frame content: {}", object);
         }
         return result;
     }
 
-    protected Class<? extends Event> parseEventType(JsonObject object) {
-        final String type = get(get(object, "extra").getAsJsonObject(), "type").getAsString();
-        if ("12".equals(type)) {
-            return ItemConsumedEvent.class;
-        }
-        if (EventTypeMap.MAP.containsKey(type)) {
-            return EventTypeMap.MAP.get(type);
-        }
-        try {
-            Integer.parseInt(type);
-        } catch (NumberFormatException e) {
-            return null; // unknown event type
-        }
-        // must be number at this time?
-        if ("PERSON".equals(get(object, "channel_type").getAsString())) {
-            return PrivateMessageReceivedEvent.class;
-        } else {
-            return ChannelMessageEvent.class;
-        }
+    // The event types that can be created from the JSON stream.
+    // These are the most frequent events, the others are rare enough to use the JSON tree.
+    protected Map<Class<? extends Event>, StreamingEventDeserializer<?>> createStreamingDeserializers() {
+        final KBCClient client = this.client;
+        final Map<Class<? extends Event>, StreamingEventDeserializer<?>> map = new HashMap<>();
+        map.put(ChannelMessageEvent.class, new ChannelMessageEventDeserializer(client));
+        map.put(PrivateMessageReceivedEvent.class, new PrivateMessageReceivedEventDeserializer(client));
+        map.put(UserAddReactionEvent.class, new UserAddReactionEventDeserializer(client));
+        map.put(UserClickButtonEvent.class, new UserClickButtonEventDeserializer(client));
+        map.put(UserOfflineEvent.class, new UserOfflineEventDeserializer(client));
+        map.put(UserOnlineEvent.class, new UserOnlineEventDeserializer(client));
+        map.put(UserRemoveReactionEvent.class, new UserRemoveReactionEventDeserializer(client));
+        return map;
     }
 
     // NOT static, so it can be override.
@@ -18,57 +18,65 @@
 
 package snw.kookbc.impl.event;
 
-import net.kyori.event.EventBus;
-import net.kyori.event.PostResult;
-import net.kyori.event.SimpleEventBus;
-import net.kyori.event.method.MethodSubscriptionAdapter;
-import net.kyori.event.method.SimpleMethodSubscriptionAdapter;
 import snw.jkook.event.Event;
 import snw.jkook.event.EventManager;
 import snw.jkook.event.Listener;
 import snw.jkook.plugin.Plugin;
 import snw.kookbc.impl.KBCClient;
+import snw.kookbc.impl.network.PayloadHeader;
 
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static snw.kookbc.util.Util.ensurePluginEnabled;
 
 public class EventManagerImpl implements EventManager {
     private final KBCClient client;
-    private final EventBus<Event> bus;
-    private final MethodSubscriptionAdapter<Listener> msa;
+    private final EventBusImpl bus;
     private final Map<Plugin, List<Listener>> listeners = new ConcurrentHashMap<>();
+    private final Map<Plugin, PluginEventExecutor> asyncExecutors = new ConcurrentHashMap<>();
+    private final List<Runnable> subscriptionListeners = new CopyOnWriteArrayList<>();
+    private final EventScopeIndex scopeIndex = new EventScopeIndex();
 
     public EventManagerImpl(KBCClient client) {
         this.client = client;
-        this.bus = new SimpleEventBus<>(Event.class);
-        this.msa = new SimpleMethodSubscriptionAdapter<>(bus, EventExecutorFactoryImpl.INSTANCE, MethodScannerImpl.INSTANCE);
+        this.bus = new EventBusImpl(client.getHandlerTimings());
     }
 
     @Override
     public void callEvent(Event event) {
-        final PostResult result = bus.post(event);
-        if (!result.wasSuccessful()) {
+        final List<Throwable> exceptions = bus.post(event);
+        if (!exceptions.isEmpty()) {
             client.getCore().getLogger().error("Unexpected exception while posting event.");
-            for (final Throwable t : result.exceptions().values()) {
+            for (final Throwable t : exceptions) {
                 t.printStackTrace();
             }
         }
     }
 
+    // Post the event that was created from a frame, so the scoped handlers (see EventScope) can check where it came from.
+    public void callEvent(Event event, PayloadHeader header) {
+        EventScopeIndex.runWithHeader(header, () -> callEvent(event));
+    }
+
     @Override
     public void registerHandlers(Plugin plugin, Listener listener) {
+        registerHandlers(plugin, listener, false);
+    }
+
+    // If async is true, all the handlers of the listener are called on the threads of the plugin,
+    //  as if the listener is annotated with AsyncHandler. The internal handlers are still synchronous.
+    public void registerHandlers(Plugin plugin, Listener listener, boolean async) {
         ensurePluginEnabled(plugin);
-        try {
-            msa.register(listener);
-        } catch (SimpleMethodSubscriptionAdapter.SubscriberGenerationException e) {
-            msa.unregister(listener); // rollback
-            throw e; // rethrow
-        }
+        // the handlers of the internal plugin are part of the client, keep them synchronous
+        final boolean internal = plugin == client.getInternalPlugin();
+        bus.register(listener, plugin.getDescription().getName(), internal ? null : () -> getAsyncExecutor(plugin), async); // registers nothing if it throws
         getListeners(plugin).add(listener);
+        scopeIndex.register(listener);
+        subscriptionsChanged();
     }
 
     @Override
@@ -78,17 +86,42 @@ public class EventManagerImpl implements EventManager {
         }
         getListeners(plugin).forEach(this::unregisterHandlers);
         listeners.remove(plugin);
+        final PluginEventExecutor executor = asyncExecutors.remove(plugin);
+        if (executor != null) {
+            executor.shutdown();
+        }
     }
 
     @Override
     public void unregisterHandlers(Listener listener) {
-        msa.unregister(listener);
+        bus.unregister(listener);
+        scopeIndex.unregister(listener);
+        subscriptionsChanged();
     }
 
     public boolean isSubscribed(Class<? extends Event> type) {
         return bus.hasSubscribers(type);
     }
 
+    public EventScopeIndex getScopeIndex() {
+        return scopeIndex;
+    }
+
+    // The provided callback will be called after the handlers are changed.
+    public void addSubscriptionListener(Runnable callback) {
+        subscriptionListeners.add(callback);
+    }
+
+    private void subscriptionsChanged() {
+        for (Runnable callback : subscriptionListeners) {
+            callback.run();
+        }
+    }
+
+    private PluginEventExecutor getAsyncExecutor(Plugin plugin) {
+        return asyncExecutors.computeIfAbsent(plugin, p -> PluginEventExecutor.create(client, p));
+    }
+
     private List<Listener> getListeners(Plugin plugin) {
         return listeners.computeIfAbsent(plugin, p -> new LinkedList<>());
     }
@@ -0,0 +1,42 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.event;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Limit the event handlers to the events from some guilds, channels or users.
+// Put it on an event handler method, or on the listener class to apply it to all the handlers in it
+//  (the annotation on the method wins).
+// An empty array means no limit. If more than one array is provided, the event must match all of them.
+// The channels and the users only apply to the message events,
+//  because the other events don't tell where they came from until they are fully parsed.
+// The events that nobody is interested in are dropped before they are parsed.
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface EventScope {
+
+    String[] guilds() default {};
+
+    String[] channels() default {};
+
+    String[] users() default {};
+}
@@ -0,0 +1,162 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.event;
+
+import snw.jkook.event.Event;
+import snw.jkook.event.Listener;
+import snw.kookbc.impl.network.PayloadHeader;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Tracks the scopes (see EventScope) of the registered event handlers,
+//  so the frames that no handler is interested in can be dropped after reading the header.
+public class EventScopeIndex {
+    private static final ThreadLocal<PayloadHeader> CURRENT_HEADER = new ThreadLocal<>();
+
+    private final Map<Listener, List<Registration>> registrations = new ConcurrentHashMap<>();
+
+    public void register(Listener listener) {
+        final List<Registration> list = new ArrayList<>();
+        for (Method method : listener.getClass().getDeclaredMethods()) {
+            if (MethodScannerImpl.INSTANCE.shouldRegister(listener, method) && method.getParameterCount() == 1
+                    && Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                list.add(new Registration(method.getParameterTypes()[0].asSubclass(Event.class), Spec.of(method)));
+            }
+        }
+        registrations.put(listener, list);
+    }
+
+    public void unregister(Listener listener) {
+        registrations.remove(listener);
+    }
+
+    // Return null if some handler of the provided type is not scoped, so all the events should be accepted.
+    public Filter filterFor(Class<? extends Event> type) {
+        final List<Spec> specs = new ArrayList<>();
+        for (List<Registration> list : registrations.values()) {
+            for (Registration registration : list) {
+                if (registration.type.isAssignableFrom(type)) {
+                    if (registration.spec == null) {
+                        return null;
+                    }
+                    specs.add(registration.spec);
+                }
+            }
+        }
+        return specs.isEmpty() ? null : new Filter(specs.toArray(new Spec[0]));
+    }
+
+    // The header of the frame that the event being posted on this thread came from,
+    //  or null if the event was not created from a frame (e.g. posted by a plugin).
+    public static PayloadHeader currentHeader() {
+        return CURRENT_HEADER.get();
+    }
+
+    static void runWithHeader(PayloadHeader header, Runnable task) {
+        CURRENT_HEADER.set(header);
+        try {
+            task.run();
+        } finally {
+            CURRENT_HEADER.remove();
+        }
+    }
+
+    private static final class Registration {
+        private final Class<? extends Event> type;
+        private final Spec spec; // null if not scoped
+
+        private Registration(Class<? extends Event> type, Spec spec) {
+            this.type = type;
+            this.spec = spec;
+        }
+    }
+
+    // Accepts a frame if any of the specs accepts it.
+    public static final class Filter {
+        private final Spec[] specs;
+
+        private Filter(Spec[] specs) {
+            this.specs = specs;
+        }
+
+        public boolean accept(PayloadHeader header) {
+            for (Spec spec : specs) {
+                if (spec.matches(header)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // The scope of a handler. When in doubt (the header doesn't tell), it matches.
+    public static final class Spec {
+        private final Set<String> guilds;
+        private final Set<String> channels;
+        private final Set<String> users;
+
+        private Spec(EventScope scope) {
+            this.guilds = new HashSet<>(Arrays.asList(scope.guilds()));
+            this.channels = new HashSet<>(Arrays.asList(scope.channels()));
+            this.users = new HashSet<>(Arrays.asList(scope.users()));
+        }
+
+        // Return null if the method is not scoped.
+        public static Spec of(Method method) {
+            EventScope scope = method.getAnnotation(EventScope.class);
+            if (scope == null) {
+                scope = method.getDeclaringClass().getAnnotation(EventScope.class);
+            }
+            if (scope == null) {
+                return null;
+            }
+            final Spec spec = new Spec(scope);
+            return spec.guilds.isEmpty() && spec.channels.isEmpty() && spec.users.isEmpty() ? null : spec;
+        }
+
+        public boolean matches(PayloadHeader header) {
+            // the type of the system events is 255, the others are messages
+            final boolean message = header.getType() != null && !"255".equals(header.getType());
+            if (!guilds.isEmpty()) {
+                if (message) {
+                    if ("PERSON".equals(header.getChannelType())) {
+                        return false; // private messages are not from any guild
+                    }
+                    if (header.getGuildId() != null && !guilds.contains(header.getGuildId())) {
+                        return false;
+                    }
+                } else if ("GROUP".equals(header.getChannelType())) {
+                    // target_id of the system events from guilds is the guild ID
+                    if (header.getTargetId() != null && !guilds.contains(header.getTargetId())) {
+                        return false;
+                    }
+                }
+            }
+            if (message) {
+                if (!channels.isEmpty() && !channels.contains(header.getTargetId())) {
+                    return false;
+                }
+                return users.isEmpty() || users.contains(header.getAuthorId());
+            }
+            return true;
+        }
+    }
+}
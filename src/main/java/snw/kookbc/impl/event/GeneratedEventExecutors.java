@@ -0,0 +1,70 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.event;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.modifier.FieldManifestation;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.implementation.FieldAccessor;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import static net.bytebuddy.matcher.ElementMatchers.named;
+
+// Generates a class for each event handler, its execute method calls the handler directly:
+//   ((SomeEvent) event) -> listener.onSomeEvent(event)
+// The generated class is loaded by a new class loader whose parent is the class loader of the listener,
+//  so it can see the classes of the plugin, and the plugins can be unloaded as usual.
+// Only used if Byte Buddy is present, it is an optional dependency. (see EventExecutorFactoryImpl)
+final class GeneratedEventExecutors {
+    private static final String FIELD_NAME = "listener";
+
+    private GeneratedEventExecutors() {
+    }
+
+    // Return null if the handler can't be called from another class loader. (e.g. non-public listener class)
+    static EventExecutor generate(Object listener, Method method) throws ReflectiveOperationException {
+        final Class<?> owner = method.getDeclaringClass();
+        if (!Modifier.isPublic(owner.getModifiers()) || !Modifier.isPublic(method.getModifiers())
+                || Modifier.isStatic(method.getModifiers())) {
+            return null;
+        }
+        final Class<? extends EventExecutor> type = new ByteBuddy()
+                .subclass(EventExecutor.class)
+                .name(owner.getName() + "$$EventExecutor$" + method.getName())
+                .defineField(FIELD_NAME, owner, Visibility.PRIVATE, FieldManifestation.FINAL)
+                .defineConstructor(Visibility.PUBLIC)
+                .withParameters(owner)
+                .intercept(MethodCall.invoke(Object.class.getConstructor())
+                        .andThen(FieldAccessor.ofField(FIELD_NAME).setsArgumentAt(0)))
+                .method(named("execute"))
+                .intercept(MethodCall.invoke(method)
+                        .onField(FIELD_NAME)
+                        .withArgument(0)
+                        .withAssigner(Assigner.DEFAULT, Assigner.Typing.DYNAMIC)) // the cast to the event type
+                .make()
+                .load(owner.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER)
+                .getLoaded();
+        return type.getConstructor(owner).newInstance(listener);
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.event;
+
+import snw.kookbc.impl.KBCClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Records how long the event handlers and the commands of each plugin take,
+//  and watches the running ones, so we can find out what is blocking the Event Executor.
+// If a handler runs longer than "slow-handler-threshold", the stack of its thread is logged,
+//  then logged again each time the threshold elapses again until it returns.
+// Use the "timings" console command to see the report.
+// Each thread reuses its own Slot for the invocations on it, so timing a call allocates nothing.
+public final class HandlerTimings {
+    private final KBCClient client;
+    private final boolean enabled;
+    private final long thresholdNanos; // 0 if the watchdog is disabled
+    private final Map<String, Timing> timings = new ConcurrentHashMap<>();
+    private final Set<Slot> slots = ConcurrentHashMap.newKeySet(); // only used by the watchdog
+    private final ThreadLocal<Slot> currentSlot = ThreadLocal.withInitial(this::newSlot);
+    private final ScheduledExecutorService watchdog;
+    private volatile long since = System.nanoTime();
+
+    public HandlerTimings(KBCClient client) {
+        this.client = client;
+        this.enabled = client.getConfig().getBoolean("handler-timings", true);
+        final long thresholdMillis = Math.max(0, client.getConfig().getInt("slow-handler-threshold", 5000));
+        this.thresholdNanos = enabled ? TimeUnit.MILLISECONDS.toNanos(thresholdMillis) : 0;
+        if (thresholdNanos > 0) {
+            watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "Handler Watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            final long period = Math.max(50, thresholdMillis / 4);
+            watchdog.scheduleWithFixedDelay(this::check, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            watchdog = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Return null if the timings are disabled.
+    public Timing getTiming(String plugin, String handler) {
+        if (!enabled) {
+            return null;
+        }
+        return timings.computeIfAbsent(plugin + " " + handler, k -> new Timing(this, plugin, handler));
+    }
+
+    // Return the slot of the current thread, pass it to finish(Slot) on the same thread.
+    // Return null if the timing is null, finish(null) does nothing.
+    public Slot start(Timing timing) {
+        if (timing == null) {
+            return null;
+        }
+        final Slot slot = currentSlot.get();
+        slot.enter(timing, System.nanoTime());
+        return slot;
+    }
+
+    public void finish(Slot slot) {
+        if (slot == null) {
+            return;
+        }
+        slot.exit(System.nanoTime(), thresholdNanos);
+    }
+
+    private Slot newSlot() {
+        final Slot slot = new Slot(Thread.currentThread());
+        if (watchdog != null) {
+            slots.add(slot);
+        }
+        return slot;
+    }
+
+    // The report, one line per handler, the slowest (in total) first.
+    public List<String> report() {
+        final List<Timing> sorted = new ArrayList<>(timings.values());
+        sorted.sort(Comparator.comparingLong((Timing it) -> it.total.sum()).reversed());
+        final List<String> lines = new ArrayList<>(sorted.size() + 1);
+        lines.add(String.format("Handler timings of the last %d second(s), %d handler(s):",
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - since), sorted.size()));
+        for (Timing timing : sorted) {
+            final long count = timing.count.sum();
+            if (count == 0) {
+                continue;
+            }
+            final long total = timing.total.sum();
+            lines.add(String.format("  [%s] %s: count=%d, total=%.2fms, avg=%.3fms, max=%.2fms, slow=%d",
+                    timing.plugin, timing.handler, count,
+                    total / 1e6, total / 1e6 / count, timing.max.get() / 1e6, timing.slow.sum()));
+        }
+        return lines;
+    }
+
+    public void reset() {
+        for (Timing timing : timings.values()) {
+            timing.reset();
+        }
+        since = System.nanoTime();
+    }
+
+    public void shutdown() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+    }
+
+    // Only the outermost invocation of each thread is watched, it is the one that blocks the thread.
+    private void check() {
+        final long now = System.nanoTime();
+        for (Slot slot : slots) {
+            if (!slot.thread.isAlive()) {
+                slots.remove(slot);
+                continue;
+            }
+            final Timing timing = slot.running;
+            if (timing == null) {
+                continue;
+            }
+            final long start = slot.runningSince;
+            if (start != slot.watchedStart) { // a new invocation
+                slot.watchedStart = start;
+                slot.nextReport = thresholdNanos;
+            }
+            final long elapsed = now - start;
+            if (elapsed < slot.nextReport) {
+                continue;
+            }
+            slot.nextReport += thresholdNanos;
+            final StackTraceElement[] stack = slot.thread.getStackTrace();
+            if (slot.running != timing || slot.runningSince != start) {
+                continue; // returned while we were sampling, the stack is not its anymore
+            }
+            final StringBuilder builder = new StringBuilder();
+            for (StackTraceElement element : stack) {
+                builder.append("\n\tat ").append(element);
+            }
+            client.getCore().getLogger().warn(
+                    "Handler {} of plugin {} has been running for {}ms on thread \"{}\", current stack:{}",
+                    timing.handler, timing.plugin,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), slot.thread.getName(), builder
+            );
+        }
+    }
+
+    public static final class Timing {
+        private final HandlerTimings timings;
+        private final String plugin;
+        private final String handler;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        private Timing(HandlerTimings timings, String plugin, String handler) {
+            this.timings = timings;
+            this.plugin = plugin;
+            this.handler = handler;
+        }
+
+        // Return an executor recording the time spent by the provided one.
+        public EventExecutor wrap(EventExecutor executor) {
+            return event -> {
+                final Slot slot = timings.start(this);
+                try {
+                    executor.execute(event);
+                } finally {
+                    timings.finish(slot);
+                }
+            };
+        }
+
+        private void record(long nanos, boolean wasSlow) {
+            count.increment();
+            total.add(nanos);
+            if (wasSlow) {
+                slow.increment();
+            }
+            long current;
+            while (nanos > (current = max.get())) {
+                if (max.compareAndSet(current, nanos)) {
+                    break;
+                }
+            }
+        }
+
+        private void reset() {
+            count.reset();
+            total.reset();
+            slow.reset();
+            max.set(0);
+        }
+    }
+
+    // The invocations running on a thread. The handlers can be nested (e.g. a handler calling callEvent),
+    //  so this is a stack, only touched by its own thread, except the fields for the watchdog.
+    public static final class Slot {
+        private final Thread thread;
+        private Timing[] timings = new Timing[4];
+        private long[] starts = new long[4];
+        private int depth;
+        // the outermost invocation, written by its own thread, read by the watchdog
+        private volatile Timing running;
+        private volatile long runningSince;
+        // only touched by the watchdog thread
+        private long watchedStart;
+        private long nextReport;
+
+        private Slot(Thread thread) {
+            this.thread = thread;
+        }
+
+        private void enter(Timing timing, long now) {
+            if (depth == timings.length) {
+                timings = Arrays.copyOf(timings, depth * 2);
+                starts = Arrays.copyOf(starts, depth * 2);
+            }
+            timings[depth] = timing;
+            starts[depth] = now;
+            if (depth++ == 0) {
+                runningSince = now;
+                running = timing; // written last, so the watchdog sees the start time if it sees this
+            }
+        }
+
+        private void exit(long now, long thresholdNanos) {
+            final Timing timing = timings[--depth];
+            final long elapsed = now - starts[depth];
+            timings[depth] = null;
+            if (depth == 0) {
+                running = null;
+            }
+            timing.record(elapsed, thresholdNanos > 0 && elapsed >= thresholdNanos);
+        }
+    }
+}
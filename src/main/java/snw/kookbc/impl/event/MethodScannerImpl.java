@@ -18,34 +18,37 @@
 
 package snw.kookbc.impl.event;
 
-import net.kyori.event.PostOrders;
-import net.kyori.event.method.MethodScanner;
-import org.checkerframework.checker.nullness.qual.NonNull;
 import snw.jkook.event.EventHandler;
 import snw.jkook.event.Listener;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
-public final class MethodScannerImpl implements MethodScanner<Listener> {
+public final class MethodScannerImpl {
     public static final MethodScannerImpl INSTANCE = new MethodScannerImpl();
+    // The handlers with lower post order are called first.
+    public static final int EARLY = -50;
+    public static final int NORMAL = 0;
 
     private MethodScannerImpl() {
     }
 
-    @Override
-    public boolean shouldRegister(@NonNull Listener listener, @NonNull Method method) {
+    public boolean shouldRegister(Listener listener, Method method) {
         return Modifier.isPublic(method.getModifiers()) && method.isAnnotationPresent(EventHandler.class);
     }
 
-    @Override
-    public int postOrder(@NonNull Listener listener, @NonNull Method method) {
-        return method.getAnnotation(EventHandler.class).internal() ? PostOrders.EARLY : PostOrders.NORMAL;
+    public int postOrder(Listener listener, Method method) {
+        return method.getAnnotation(EventHandler.class).internal() ? EARLY : NORMAL;
     }
 
-    @Override
-    public boolean consumeCancelledEvents(@NonNull Listener listener, @NonNull Method method) {
-        return false;
+    // The internal handlers are always synchronous, they must finish before the other handlers are called.
+    public boolean isAsync(Listener listener, Method method, boolean asyncByDefault) {
+        if (method.getAnnotation(EventHandler.class).internal()) {
+            return false;
+        }
+        return asyncByDefault
+                || method.isAnnotationPresent(AsyncHandler.class)
+                || listener.getClass().isAnnotationPresent(AsyncHandler.class);
     }
 
 }
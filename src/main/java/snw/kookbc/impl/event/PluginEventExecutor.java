@@ -0,0 +1,161 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.event;
+
+import snw.jkook.config.ConfigurationSection;
+import snw.jkook.event.Event;
+import snw.jkook.plugin.Plugin;
+import snw.kookbc.impl.KBCClient;
+import snw.kookbc.impl.network.PayloadHeader;
+import snw.kookbc.impl.network.dispatch.KeyedEventDispatcher;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs the async event handlers (see AsyncHandler) of ONE plugin.
+// The plugin has its own single-threaded lanes with bounded queues, so a slow plugin only delays itself.
+// The events with the same ordering key (see KeyedEventDispatcher#orderingKey) always go to the same lane,
+//  so they are handled in order.
+public class PluginEventExecutor {
+    private final KBCClient client;
+    private final String pluginName;
+    private final ThreadPoolExecutor[] lanes;
+    private final OverflowPolicy policy;
+    private final AtomicLong dropped = new AtomicLong();
+
+    public PluginEventExecutor(KBCClient client, String pluginName, int threads, int queueSize, OverflowPolicy policy) {
+        this.client = client;
+        this.pluginName = pluginName;
+        this.policy = policy;
+        this.lanes = new ThreadPoolExecutor[threads];
+        for (int i = 0; i < threads; i++) {
+            final String name = "Plugin Event Executor - " + pluginName + " #" + (i + 1);
+            lanes[i] = new ThreadPoolExecutor(
+                    1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueSize),
+                    r -> {
+                        Thread thread = new Thread(r, name);
+                        thread.setDaemon(true); // a stuck plugin should not prevent the JVM from exiting
+                        return thread;
+                    },
+                    this::reject
+            );
+        }
+    }
+
+    // Read the settings of the plugin from the "plugin-async" section of the config.
+    public static PluginEventExecutor create(KBCClient client, Plugin plugin) {
+        final String name = plugin.getDescription().getName();
+        final ConfigurationSection section = client.getConfig().getConfigurationSection("plugin-async");
+        int threads = 1;
+        int queueSize = 1024;
+        String policyName = "drop";
+        if (section != null) {
+            threads = section.getInt("threads", threads);
+            queueSize = section.getInt("queue-size", queueSize);
+            policyName = section.getString("overflow-policy", policyName);
+            final ConfigurationSection plugins = section.getConfigurationSection("plugins");
+            final ConfigurationSection override = plugins != null ? plugins.getConfigurationSection(name) : null;
+            if (override != null) {
+                threads = override.getInt("threads", threads);
+                queueSize = override.getInt("queue-size", queueSize);
+                policyName = override.getString("overflow-policy", policyName);
+            }
+        }
+        final OverflowPolicy policy;
+        switch (policyName) {
+            case "block":
+                policy = OverflowPolicy.BLOCK;
+                break;
+            case "drop-oldest":
+                policy = OverflowPolicy.DROP_OLDEST;
+                break;
+            case "drop":
+                policy = OverflowPolicy.DROP;
+                break;
+            default:
+                client.getCore().getLogger().warn("Unknown plugin-async overflow-policy \"{}\" for plugin {}, using \"drop\".", policyName, name);
+                policy = OverflowPolicy.DROP;
+        }
+        return new PluginEventExecutor(client, name, Math.max(1, threads), Math.max(1, queueSize), policy);
+    }
+
+    // Must be called on the thread posting the event, the ordering key comes from the frame being processed.
+    public void execute(EventExecutor handler, Event event) {
+        final PayloadHeader header = EventScopeIndex.currentHeader();
+        final String key = header != null ? KeyedEventDispatcher.orderingKey(header) : null;
+        lanes[KeyedEventDispatcher.stripeOf(key, lanes.length)].execute(() -> {
+            try {
+                handler.execute(event);
+            } catch (Throwable e) {
+                client.getCore().getLogger().error("Unexpected exception while posting event to plugin {}.", pluginName, e);
+            }
+        });
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // The queued events are still handled, but no more events will be accepted.
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    private void reject(Runnable task, ThreadPoolExecutor lane) {
+        if (lane.isShutdown()) {
+            return;
+        }
+        switch (policy) {
+            case BLOCK:
+                try {
+                    lane.getQueue().put(task);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return;
+            case DROP_OLDEST:
+                lane.getQueue().poll();
+                onDropped();
+                lane.execute(task);
+                return;
+            default:
+                onDropped();
+        }
+    }
+
+    private void onDropped() {
+        final long count = dropped.incrementAndGet();
+        if (count % 1000 == 1) { // don't flood the log
+            client.getCore().getLogger().warn(
+                    "The async event queue of plugin {} is full, {} event(s) have been dropped so far.", pluginName, count
+            );
+        }
+    }
+
+    public enum OverflowPolicy {
+        BLOCK, // wait until the queue has room, this delays the events of all plugins
+        DROP, // drop the new event
+        DROP_OLDEST // drop the oldest waiting event
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.event;
+
+import snw.jkook.event.Event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Posted when a coalescing window closes (see "event-coalesce-window" in kbc.yml).
+// It contains the latest event of each (event type, target, user) seen in the window,
+//  in the order of their last updates, so the flaps in the window are not here.
+// Subscribe to it if only the final states are needed, e.g. for tracking presence.
+// The events in it are also posted one by one to their own handlers, this is posted after all of them.
+public class StateUpdateBatchEvent extends Event {
+    private final List<Event> events;
+
+    public StateUpdateBatchEvent(long timeStamp, List<Event> events) {
+        super(timeStamp);
+        this.events = Collections.unmodifiableList(events);
+    }
+
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    // Return the events of the provided type in this batch.
+    public <T extends Event> List<T> getEvents(Class<T> type) {
+        final List<T> result = new ArrayList<>();
+        for (Event event : events) {
+            if (type.isInstance(event)) {
+                result.add(type.cast(event));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "StateUpdateBatchEvent{" +
+                "timeStamp=" + getTimeStamp() +
+                ", events=" + events.size() +
+                '}';
+    }
+}
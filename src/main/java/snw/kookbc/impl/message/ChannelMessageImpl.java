@@ -9,21 +9,31 @@ import snw.jkook.message.component.BaseComponent;
 import snw.jkook.message.component.MarkdownComponent;
 import snw.kookbc.impl.KBCClient;
 import snw.kookbc.impl.entity.builder.MessageBuilder;
+import snw.kookbc.impl.entity.channel.NonCategoryChannelImpl;
 import snw.kookbc.impl.network.HttpAPIRoute;
 import snw.kookbc.util.MapBuilder;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class ChannelMessageImpl extends MessageImpl implements ChannelMessage {
 
     private final NonCategoryChannel channel;
 
     public ChannelMessageImpl(KBCClient client, String id, User user, BaseComponent component, long timeStamp, Message quote, NonCategoryChannel channel) {
-        super(client, id, user, component, timeStamp, quote);
+        this(client, id, user, component, null, timeStamp, quote, channel);
+    }
+
+    protected ChannelMessageImpl(KBCClient client, String id, User user, BaseComponent component, LazyComponent lazyComponent, long timeStamp, Message quote, NonCategoryChannel channel) {
+        super(client, id, user, component, lazyComponent, timeStamp, quote);
         this.channel = channel;
     }
 
+    public static ChannelMessageImpl lazy(KBCClient client, String id, User user, LazyComponent component, long timeStamp, Message quote, NonCategoryChannel channel) {
+        return new ChannelMessageImpl(client, id, user, null, component, timeStamp, quote, channel);
+    }
+
     @Override
     public void sendReaction(CustomEmoji emoji) {
         Map<String, Object> body = new MapBuilder()
@@ -80,7 +90,7 @@ public class ChannelMessageImpl extends MessageImpl implements ChannelMessage {
     @Override
     public void setComponentTemp(User user, BaseComponent component) {
         checkCompatibleComponentType(component);
-        Object content = MessageBuilder.serialize(component)[1];
+        Object content = MessageBuilder.serializeContent(component)[1];
         Map<String, Object> body = new MapBuilder()
                 .put("msg_id", getId())
                 .put("content", content)
@@ -92,6 +102,14 @@ public class ChannelMessageImpl extends MessageImpl implements ChannelMessage {
         );
     }
 
+    // Same as setComponentTemp(User, BaseComponent), but coalesced like setComponentAsync(BaseComponent).
+    public CompletableFuture<Void> setComponentTempAsync(User user, BaseComponent component) {
+        checkCompatibleComponentType(component);
+        return client.getMessageUpdateCoalescer().submit(
+                HttpAPIRoute.CHANNEL_MESSAGE_UPDATE, getId(), user.getId(), MessageBuilder.serializeContent(component)[1]
+        );
+    }
+
     @Override
     public void setComponentTemp(User user, String s) {
         setComponentTemp(user, new MarkdownComponent(s));
@@ -117,6 +135,11 @@ public class ChannelMessageImpl extends MessageImpl implements ChannelMessage {
         return getChannel().sendComponent(component, null, null);
     }
 
+    @Override
+    public String sendContentToSource(int type, Object content) {
+        return ((NonCategoryChannelImpl) getChannel()).sendContent(type, content, null, null);
+    }
+
     @Override
     public void delete() {
         client.getNetworkClient().postContent(HttpAPIRoute.CHANNEL_MESSAGE_DELETE.toFullURL(), Collections.singletonMap("msg_id", getId()));
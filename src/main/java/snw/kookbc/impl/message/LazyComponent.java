@@ -0,0 +1,61 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.message;
+
+import snw.jkook.message.component.BaseComponent;
+
+import java.util.function.Function;
+
+// A message component that is decoded from the raw content on first use, and only once.
+// Used for the cards, decoding a card is expensive, but most of the cards are never read.
+// Never use it for the text components, the command system checks them on every message.
+public final class LazyComponent {
+    private final String content;
+    private final Function<String, BaseComponent> decoder;
+    private volatile BaseComponent component;
+
+    public LazyComponent(String content, Function<String, BaseComponent> decoder) {
+        this.content = content;
+        this.decoder = decoder;
+    }
+
+    // Wrap a decoded component.
+    public static LazyComponent of(BaseComponent component) {
+        final LazyComponent result = new LazyComponent(null, null);
+        result.component = component;
+        return result;
+    }
+
+    public BaseComponent get() {
+        BaseComponent result = component;
+        if (result == null) {
+            synchronized (this) {
+                result = component;
+                if (result == null && decoder != null) {
+                    component = result = decoder.apply(content);
+                }
+            }
+        }
+        return result;
+    }
+
+    public boolean isDecoded() {
+        return component != null || decoder == null;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.message;
+
+import snw.jkook.message.Message;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+// A quoted message that is loaded on demand.
+// The data from the "quote" object of the payload (ID, content, sender and time) is available without loading,
+//  the other methods load the full message (e.g. from HTTP API) on first call.
+// If the message can't be loaded (e.g. it was deleted), the Message methods fall back to the quote data,
+//  and the loader won't be called again.
+// Like LazyEntity, equals(), hashCode() and toString() are answered from the type and the ID,
+//  the messages are compared by ID (see MessageImpl#equals).
+public final class LazyQuote implements InvocationHandler {
+    private final Class<? extends Message> type;
+    private final Message seed;
+    private final Supplier<? extends Message> loader;
+    private volatile Message target;
+    private volatile NoSuchElementException failure;
+
+    private LazyQuote(Class<? extends Message> type, Message seed, Supplier<? extends Message> loader) {
+        this.type = type;
+        this.seed = seed;
+        this.loader = loader;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T extends Message> T of(Class<T> type, Message seed, Supplier<? extends T> loader) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new LazyQuote(type, seed, loader));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        final String name = method.getName();
+        final int argc = args == null ? 0 : args.length;
+        if (argc == 0) {
+            switch (name) {
+                case "getId":
+                case "getComponent":
+                case "getSender":
+                case "getTimeStamp":
+                    return method.invoke(seed);
+                case "hashCode":
+                    return seed.getId().hashCode();
+                case "toString":
+                    return type.getSimpleName() + "{id=" + seed.getId() + '}';
+            }
+        }
+        if (argc == 1 && name.equals("equals") && method.getParameterTypes()[0] == Object.class) {
+            final Object other = args[0];
+            return proxy == other || (other instanceof Message && seed.getId().equals(((Message) other).getId()));
+        }
+        Message target;
+        try {
+            target = get();
+        } catch (NoSuchElementException e) {
+            if (!method.getDeclaringClass().isInstance(seed)) {
+                throw e;
+            }
+            target = seed;
+        }
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Message get() {
+        Message result = target;
+        if (result == null) {
+            if (failure != null) {
+                throw failure;
+            }
+            synchronized (this) {
+                result = target;
+                if (result == null) {
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    try {
+                        result = loader.get();
+                        if (result == null) {
+                            throw new NoSuchElementException("Unable to load the quoted message with ID " + seed.getId());
+                        }
+                    } catch (NoSuchElementException e) {
+                        failure = e;
+                        throw e;
+                    }
+                    target = result;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -43,27 +43,44 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public abstract class MessageImpl implements Message {
     protected final KBCClient client;
     private final String id;
     private final User user;
-    private BaseComponent component;
+    private volatile BaseComponent component;
+    private final LazyComponent lazyComponent; // null if the component is provided directly
     private final long timeStamp;
     private final Message quote;
 
     public MessageImpl(KBCClient client, String id, User user, BaseComponent component, long timeStamp, Message quote) {
+        this(client, id, user, component, null, timeStamp, quote);
+    }
+
+    // Exactly one of component and lazyComponent is expected to be non-null.
+    protected MessageImpl(KBCClient client, String id, User user, BaseComponent component, LazyComponent lazyComponent, long timeStamp, Message quote) {
         this.client = client;
         this.id = id;
         this.user = user;
         this.component = component;
+        this.lazyComponent = lazyComponent;
         this.timeStamp = timeStamp;
         this.quote = quote;
     }
 
     @Override
     public BaseComponent getComponent() {
-        return component;
+        BaseComponent result = component;
+        if (result == null && lazyComponent != null) {
+            component = result = lazyComponent.get();
+        }
+        return result;
+    }
+
+    // Return false if the component is a card that has not been decoded yet, see LazyComponent.
+    public boolean isComponentDecoded() {
+        return component != null || lazyComponent == null || lazyComponent.isDecoded();
     }
 
     @Override
@@ -122,15 +139,31 @@ public abstract class MessageImpl implements Message {
     @Override
     public void setComponent(BaseComponent component) {
         checkCompatibleComponentType(component);
-        Object content = MessageBuilder.serialize(component)[1];
+        setContent(MessageBuilder.serializeContent(component)[1]);
+    }
+
+    // Same as setComponent(BaseComponent), but the update is coalesced with the other updates of this message,
+    //  only the latest component is sent if the updates come faster than the rate limit allows.
+    // See MessageUpdateCoalescer.
+    public CompletableFuture<Void> setComponentAsync(BaseComponent component) {
+        checkCompatibleComponentType(component);
+        return client.getMessageUpdateCoalescer().submit(
+                getUpdateRoute(), getId(), null, MessageBuilder.serializeContent(component)[1]
+        );
+    }
+
+    protected HttpAPIRoute getUpdateRoute() {
+        return (this instanceof TextChannelMessage) ? HttpAPIRoute.CHANNEL_MESSAGE_UPDATE : HttpAPIRoute.USER_CHAT_MESSAGE_UPDATE;
+    }
+
+    // Update this message with the serialized content (see MessageBuilder#serializeContent and CardTemplate).
+    // The type of the content is not checked here, the caller should make sure it is compatible.
+    public void setContent(Object content) {
         Map<String, Object> body = new MapBuilder()
                 .put("msg_id", getId())
                 .put("content", content)
                 .build();
-        client.getNetworkClient().post(
-                ((this instanceof TextChannelMessage) ? HttpAPIRoute.CHANNEL_MESSAGE_UPDATE : HttpAPIRoute.USER_CHAT_MESSAGE_UPDATE).toFullURL(),
-                body
-        );
+        client.getNetworkClient().post(getUpdateRoute().toFullURL(), body);
     }
 
     @Override
@@ -138,18 +171,44 @@ public abstract class MessageImpl implements Message {
         setComponent(new MarkdownComponent(s));
     }
 
+    // Send the serialized content to the source of this message, like sendToSource(BaseComponent).
+    // Compared by ID, so the lazy quotes (see LazyQuote) and the loaded messages are equal both ways.
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        return obj instanceof Message && id.equals(((Message) obj).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+
+    public abstract String sendContentToSource(int type, Object content);
+
     public void setComponent0(BaseComponent component) {
         this.component = component;
     }
 
     protected final void checkCompatibleComponentType(BaseComponent newIncoming) {
-        if (this.component == null) {
+        if (component == null && lazyComponent != null && !lazyComponent.isDecoded()) {
+            // only the cards are decoded lazily (see MessageBuilder#buildLazyComponent), don't decode it just for the type check
+            if (!(newIncoming instanceof CardComponent || newIncoming instanceof MultipleCardComponent)) {
+                throw new IllegalArgumentException("Incompatible component type, tried updating from a card to "
+                        + newIncoming.getClass());
+            }
+            return;
+        }
+        final BaseComponent component = getComponent();
+        if (component == null) {
             return; // we don't know, let HTTP API check
         }
-        final boolean compatible = isCompatibleComponentType(this.component, newIncoming);
+        final boolean compatible = isCompatibleComponentType(component, newIncoming);
         if (!compatible) {
             throw new IllegalArgumentException("Incompatible component type, tried updating from "
-                    + this.component.getClass() + " to " + newIncoming.getClass());
+                    + component.getClass() + " to " + newIncoming.getClass());
         }
     }
 
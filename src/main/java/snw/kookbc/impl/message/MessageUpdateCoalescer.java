@@ -0,0 +1,186 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.message;
+
+import org.jetbrains.annotations.Nullable;
+import snw.kookbc.impl.KBCClient;
+import snw.kookbc.impl.network.Bucket;
+import snw.kookbc.impl.network.HttpAPIRoute;
+import snw.kookbc.impl.network.NetworkScheduler;
+import snw.kookbc.impl.network.exceptions.TooFastException;
+import snw.kookbc.util.MapBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Coalesces the updates of messages, the latest value wins.
+// For each message there is at most one update in flight and one pending update,
+//  a newer update replaces the pending one, so the states that no one would see are never sent.
+// The updates are paced by the remaining budget of the bucket of the update route,
+//  each send reserves its own time from the bucket, see Bucket#reservePacedSlot.
+// The future of an update completes when the update (or the newer one replacing it) has been applied,
+//  or exceptionally if the client is shut down before it is sent.
+public class MessageUpdateCoalescer {
+    private final KBCClient client;
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private volatile boolean shutdown;
+
+    public MessageUpdateCoalescer(KBCClient client) {
+        this.client = client;
+    }
+
+    public CompletableFuture<Void> submit(HttpAPIRoute route, String msgId, @Nullable String tempTargetId, Object content) {
+        final Map<String, Object> body = new MapBuilder()
+                .put("msg_id", msgId)
+                .put("content", content)
+                .putIfNotNull("temp_target_id", tempTargetId)
+                .build();
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        if (shutdown) {
+            future.completeExceptionally(newShutdownException());
+            return future;
+        }
+        final String key = route.name() + "#" + msgId + "#" + tempTargetId;
+        final boolean[] start = new boolean[1];
+        final Slot slot = slots.compute(key, (k, s) -> {
+            if (s == null) {
+                s = new Slot(k, route);
+            }
+            synchronized (s) {
+                s.pendingBody = body; // replace the old one, nobody needs to see it
+                s.waiters.add(future);
+                if (!s.active) {
+                    s.active = true;
+                    start[0] = true;
+                }
+            }
+            return s;
+        });
+        if (start[0]) {
+            schedule(slot, 0L);
+        }
+        if (shutdown) {
+            fail(slot); // shutdown() may have missed the slot while we were adding to it
+        }
+        return future;
+    }
+
+    // Fail the pending updates, they will never be sent.
+    // The update in flight (if any) still completes its own waiters.
+    public void shutdown() {
+        shutdown = true;
+        slots.values().forEach(this::fail);
+    }
+
+    private void fail(Slot slot) {
+        final List<CompletableFuture<Void>> waiters;
+        synchronized (slot) {
+            waiters = slot.waiters;
+            slot.pendingBody = null;
+            slot.waiters = new ArrayList<>();
+        }
+        if (!waiters.isEmpty()) {
+            final IllegalStateException e = newShutdownException();
+            waiters.forEach(it -> it.completeExceptionally(e));
+        }
+    }
+
+    private static IllegalStateException newShutdownException() {
+        return new IllegalStateException("The message update was not sent because the client has been shut down");
+    }
+
+    // minDelay: the minimum delay (in milliseconds), the actual delay is the time reserved from the bucket.
+    private void schedule(Slot slot, long minDelay) {
+        final long delay = Math.max(Bucket.get(client, slot.route).reservePacedSlot(), minDelay);
+        if (delay <= 0) {
+            NetworkScheduler.worker().execute(() -> flush(slot));
+        } else {
+            NetworkScheduler.timer().schedule(
+                    () -> NetworkScheduler.worker().execute(() -> flush(slot)), delay, TimeUnit.MILLISECONDS
+            );
+        }
+    }
+
+    // Send the pending update of the slot. Only one flush of a slot can be running at the same time.
+    private void flush(Slot slot) {
+        final Map<String, Object> body;
+        final List<CompletableFuture<Void>> waiters;
+        synchronized (slot) {
+            body = slot.pendingBody;
+            waiters = slot.waiters;
+            slot.pendingBody = null;
+            slot.waiters = new ArrayList<>();
+        }
+
+        long minDelay = 0L;
+        if (body != null) { // null if shutdown() has failed it
+            try {
+                client.getNetworkClient().post(slot.route.toFullURL(), body);
+                waiters.forEach(it -> it.complete(null));
+            } catch (TooFastException e) {
+                // try again later, unless a newer update arrived, the waiters will be completed by that one
+                synchronized (slot) {
+                    if (slot.pendingBody == null && !shutdown) {
+                        slot.pendingBody = body;
+                    }
+                    slot.waiters.addAll(0, waiters);
+                }
+                if (shutdown) {
+                    fail(slot);
+                }
+                minDelay = 1000L;
+            } catch (Throwable e) {
+                waiters.forEach(it -> it.completeExceptionally(e));
+            }
+        }
+
+        final boolean[] more = new boolean[1];
+        slots.compute(slot.key, (k, s) -> {
+            synchronized (slot) {
+                if (slot.pendingBody == null) {
+                    slot.active = false;
+                    return null; // nothing to send, forget this message
+                }
+                more[0] = true;
+                return slot;
+            }
+        });
+        if (more[0]) {
+            schedule(slot, minDelay);
+        }
+    }
+
+    private static final class Slot {
+        private final String key;
+        private final HttpAPIRoute route;
+        // guarded by the lock of this slot
+        private Map<String, Object> pendingBody;
+        private List<CompletableFuture<Void>> waiters = new ArrayList<>();
+        private boolean active; // true if a flush is scheduled or running
+
+        private Slot(String key, HttpAPIRoute route) {
+            this.key = key;
+            this.route = route;
+        }
+    }
+}
@@ -25,6 +25,7 @@ import snw.jkook.message.PrivateMessage;
 import snw.jkook.message.component.BaseComponent;
 import snw.jkook.message.component.MarkdownComponent;
 import snw.kookbc.impl.KBCClient;
+import snw.kookbc.impl.entity.UserImpl;
 import snw.kookbc.impl.network.HttpAPIRoute;
 import snw.kookbc.util.MapBuilder;
 
@@ -36,6 +37,14 @@ public class PrivateMessageImpl extends MessageImpl implements PrivateMessage {
         super(client, id, user, component, timeStamp, quote);
     }
 
+    protected PrivateMessageImpl(KBCClient client, String id, User user, BaseComponent component, LazyComponent lazyComponent, long timeStamp, Message quote) {
+        super(client, id, user, component, lazyComponent, timeStamp, quote);
+    }
+
+    public static PrivateMessageImpl lazy(KBCClient client, String id, User user, LazyComponent component, long timeStamp, Message quote) {
+        return new PrivateMessageImpl(client, id, user, null, component, timeStamp, quote);
+    }
+
     @Override
     public void sendReaction(CustomEmoji emoji) {
         Map<String, Object> body = new MapBuilder()
@@ -74,6 +83,11 @@ public class PrivateMessageImpl extends MessageImpl implements PrivateMessage {
         return getSender().sendPrivateMessage(component);
     }
 
+    @Override
+    public String sendContentToSource(int type, Object content) {
+        return ((UserImpl) getSender()).sendPrivateContent(type, content, null);
+    }
+
     @Override
     public void delete() {
         client.getNetworkClient().postContent(HttpAPIRoute.USER_CHAT_MESSAGE_DELETE.toFullURL(), Collections.singletonMap("msg_id", getId()));
@@ -28,21 +28,32 @@ import java.util.Collection;
 
 // This is a temporary bean object for the situations like quote received, but original object missing.
 public class QuoteImpl implements Message {
-    private final BaseComponent component;
+    private final LazyComponent component;
     private final String id;
     private final User sender;
     private final long timeStamp;
 
     public QuoteImpl(BaseComponent component, String id, User sender, long timeStamp) {
+        this.component = LazyComponent.of(component);
+        this.id = id;
+        this.sender = sender;
+        this.timeStamp = timeStamp;
+    }
+
+    private QuoteImpl(LazyComponent component, String id, User sender, long timeStamp) {
         this.component = component;
         this.id = id;
         this.sender = sender;
         this.timeStamp = timeStamp;
     }
 
+    public static QuoteImpl lazy(LazyComponent component, String id, User sender, long timeStamp) {
+        return new QuoteImpl(component, id, sender, timeStamp);
+    }
+
     @Override
     public BaseComponent getComponent() {
-        return component;
+        return component.get();
     }
 
     @Override
@@ -112,4 +123,18 @@ public class QuoteImpl implements Message {
     public void removeReaction(CustomEmoji emoji) {
     }
 
+    // Compared by ID, so the lazy quotes (see LazyQuote) and the loaded messages are equal both ways.
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        return obj instanceof Message && id.equals(((Message) obj).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+
 }
@@ -29,10 +29,18 @@ public class TextChannelMessageImpl extends ChannelMessageImpl implements TextCh
     private final TextChannel channel;
 
     public TextChannelMessageImpl(KBCClient client, String id, User user, BaseComponent component, long timeStamp, Message quote, TextChannel channel) {
-        super(client, id, user, component, timeStamp, quote, channel);
+        this(client, id, user, component, null, timeStamp, quote, channel);
+    }
+
+    protected TextChannelMessageImpl(KBCClient client, String id, User user, BaseComponent component, LazyComponent lazyComponent, long timeStamp, Message quote, TextChannel channel) {
+        super(client, id, user, component, lazyComponent, timeStamp, quote, channel);
         this.channel = channel;
     }
 
+    public static TextChannelMessageImpl lazy(KBCClient client, String id, User user, LazyComponent component, long timeStamp, Message quote, TextChannel channel) {
+        return new TextChannelMessageImpl(client, id, user, null, component, timeStamp, quote, channel);
+    }
+
     @Override
     public TextChannel getChannel() {
         return channel;
@@ -39,6 +39,7 @@ public class Bucket {
     private final AtomicInteger availableTimes = new AtomicInteger(Integer.MIN_VALUE);
     private final AtomicInteger resetTime = new AtomicInteger();
     private volatile boolean scheduledToUpdate;
+    private long nextPacedTime; // guarded by this, see reservePacedSlot
 
     // Use get(KBCClient, String) method instead.
     private Bucket(KBCClient client, String name) {
@@ -69,6 +70,32 @@ public class Bucket {
         availableTimes.decrementAndGet();
     }
 
+    // The delay (in milliseconds) before the next request,
+    //  so the remaining budget of this bucket lasts until it is reset.
+    // Return 0 if we don't know the remaining budget yet.
+    public synchronized long getPacingDelay() {
+        final int available = availableTimes.get();
+        if (available == Integer.MIN_VALUE) {
+            return 0;
+        }
+        final long resetMillis = Math.max(resetTime.get(), 1) * 1000L;
+        final int usable = available - 10; // keep the same margin as check()
+        if (usable <= 0) {
+            return resetMillis;
+        }
+        return resetMillis / usable;
+    }
+
+    // Reserve the next paced request of this bucket, return the delay (in milliseconds) until it can be sent.
+    // Each reservation moves the next allowed time forward by the pacing delay,
+    //  so the callers that reserve at the same time are spread out instead of all waiting the same delay.
+    public synchronized long reservePacedSlot() {
+        final long now = System.currentTimeMillis();
+        final long at = Math.max(now, nextPacedTime);
+        nextPacedTime = at + getPacingDelay();
+        return at - now;
+    }
+
     @Override
     public String toString() {
         return "Bucket{" +
@@ -27,6 +27,7 @@ public class Frame {
     private final MessageType type;
     private final int sn;
     private final JsonObject d;
+    private volatile PayloadHeader header;
 
     public Frame(int s, int sn, JsonObject d) {
         this.type = Objects.requireNonNull(MessageType.valueOf(s));
@@ -34,6 +35,11 @@ public class Frame {
         this.d = d;
     }
 
+    // for the frames that provide their data lazily, see RawFrame
+    protected Frame(int s, int sn) {
+        this(s, sn, null);
+    }
+
     public MessageType getType() {
         return type;
     }
@@ -46,6 +52,19 @@ public class Frame {
         return d;
     }
 
+    // Return the cheap part of the data, see PayloadHeader.
+    public PayloadHeader getHeader() {
+        PayloadHeader result = header;
+        if (result == null) {
+            header = result = readHeader();
+        }
+        return result;
+    }
+
+    protected PayloadHeader readHeader() {
+        return PayloadHeader.of(getData());
+    }
+
     @Override
     public String toString() {
         return "Frame{" +
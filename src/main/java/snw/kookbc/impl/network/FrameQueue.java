@@ -0,0 +1,365 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import snw.kookbc.impl.KBCClient;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import static snw.kookbc.util.GsonUtil.NORMAL_GSON;
+
+// The bounded queue between the network threads and the Event Executor.
+// If the queue is full, the overload policy decides what to do with the new frames:
+//  BLOCK: block the network thread, so the remote will slow down because of TCP backpressure.
+//  SHED: drop the low-value events (e.g. user online/offline) first, then block if there is nothing to drop.
+//  SPILL: write the frames to a local file, and read them back when the queue has room.
+public class FrameQueue {
+    private static final int DRAIN_BATCH = 256;
+    private static final long SATURATED_RETRY_MILLIS = 10;
+
+    public enum Policy {
+        BLOCK, SHED, SPILL
+    }
+
+    private final KBCClient client;
+    private final Consumer<Frame> consumer;
+    private final IntConsumer dropHandler; // will be told the SN of the dropped frames
+    private final Policy policy;
+    private final ArrayBlockingQueue<Frame> queue;
+    private final Set<String> shedTypes;
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AtomicBoolean retryScheduled = new AtomicBoolean(false);
+    // held while a frame is taken and consumed, so clear() never runs in the middle of it
+    private final Object consumeLock = new Object();
+    private final AtomicInteger generation = new AtomicInteger(); // increased by clear()
+    // spill
+    private final File spillFile;
+    private final Object spillLock = new Object();
+    private DataOutputStream spillOut;
+    private DataInputStream spillIn;
+    private final AtomicLong spillPending = new AtomicLong();
+    // statistics
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+
+    public FrameQueue(KBCClient client, Consumer<Frame> consumer, IntConsumer dropHandler) {
+        this.client = client;
+        this.consumer = consumer;
+        this.dropHandler = dropHandler;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, client.getConfig().getInt("event-queue-size", 8192)));
+        final String policyName = client.getConfig().getString("event-queue-policy", "block");
+        Policy policy;
+        try {
+            policy = Policy.valueOf(policyName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            client.getCore().getLogger().warn("Unrecognized event queue policy: {}, using block policy.", policyName);
+            policy = Policy.BLOCK;
+        }
+        this.policy = policy;
+        final Set<String> shedTypes = new HashSet<>();
+        for (String type : client.getConfig().getString("event-queue-shed-types", "guild_member_online,guild_member_offline").split(",")) {
+            if (!type.trim().isEmpty()) {
+                shedTypes.add(type.trim());
+            }
+        }
+        this.shedTypes = Collections.unmodifiableSet(shedTypes);
+        this.spillFile = new File(client.getConfig().getString("event-queue-spill-file", "event_spill.bin"));
+    }
+
+    // Called by the network threads.
+    public void offer(Frame frame) {
+        try {
+            offer0(frame, generation.get());
+        } finally {
+            scheduleDrain();
+        }
+    }
+
+    private void offer0(Frame frame, int gen) {
+        if (policy == Policy.SPILL && spillPending.get() > 0 && spill(frame)) {
+            return; // the older frames are in the file, keep the order
+        }
+        if (queue.offer(frame)) {
+            updateMaxDepth();
+            return;
+        }
+        switch (policy) {
+            case SHED:
+                if (isLowValue(frame)) {
+                    drop(frame);
+                    return;
+                }
+                if (evictLowValue() && queue.offer(frame)) {
+                    return;
+                }
+                block(frame, gen); // nothing to drop
+                break;
+            case SPILL:
+                if (!spill(frame)) {
+                    block(frame, gen);
+                }
+                break;
+            default:
+                block(frame, gen);
+                break;
+        }
+    }
+
+    private void block(Frame frame, int gen) {
+        scheduleDrain(); // make sure someone is taking the frames
+        try {
+            while (client.isRunning()) {
+                if (generation.get() != gen) {
+                    return; // the queue was cleared while we were waiting, the frame is from the old session
+                }
+                if (queue.offer(frame, 1, TimeUnit.SECONDS)) {
+                    updateMaxDepth();
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Discard all the waiting frames (e.g. because they belong to a session that has gone),
+    //  then run the provided task before any new frame can be consumed.
+    // The frames being offered at the same time are discarded too.
+    public void clear(Runnable then) {
+        synchronized (consumeLock) {
+            generation.incrementAndGet();
+            queue.clear();
+            synchronized (spillLock) {
+                if (spillPending.getAndSet(0) > 0) {
+                    resetSpill();
+                }
+            }
+            then.run();
+        }
+    }
+
+    private boolean isLowValue(Frame frame) {
+        return !shedTypes.isEmpty() && shedTypes.contains(frame.getHeader().getExtraType());
+    }
+
+    // Remove a queued low-value frame to make room. Only happens if the queue is full, so the scan is acceptable.
+    private boolean evictLowValue() {
+        if (shedTypes.isEmpty()) {
+            return false;
+        }
+        final Iterator<Frame> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            final Frame queued = iterator.next();
+            if (isLowValue(queued)) {
+                iterator.remove();
+                drop(queued);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void drop(Frame frame) {
+        dropped.incrementAndGet();
+        client.getCore().getLogger().debug("Event queue is full, dropped frame with SN {}", frame.getSN());
+        dropHandler.accept(frame.getSN());
+    }
+
+    // Return false if we can't write the file.
+    private boolean spill(Frame frame) {
+        synchronized (spillLock) {
+            try {
+                if (spillOut == null) {
+                    spillOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile, false)));
+                    client.getCore().getLogger().warn("Event queue is full, writing the events to {}", spillFile.getAbsolutePath());
+                }
+                final byte[] bytes = encode(frame);
+                spillOut.writeInt(bytes.length);
+                spillOut.write(bytes);
+                spillOut.flush(); // so the reader can see it
+                spillPending.incrementAndGet();
+                spilled.incrementAndGet();
+                return true;
+            } catch (IOException e) {
+                client.getCore().getLogger().error("Unable to write the event to the spill file, blocking instead.", e);
+                return false;
+            }
+        }
+    }
+
+    // Return the oldest spilled frame, or null if there is nothing in the file.
+    private Frame unspill() {
+        final byte[] bytes;
+        synchronized (spillLock) {
+            if (spillPending.get() == 0) {
+                return null;
+            }
+            try {
+                if (spillIn == null) {
+                    spillIn = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile)));
+                }
+                bytes = new byte[spillIn.readInt()];
+                spillIn.readFully(bytes);
+            } catch (IOException e) {
+                client.getCore().getLogger().error("Unable to read the events from the spill file, {} event(s) are lost.", spillPending.get(), e);
+                dropped.addAndGet(spillPending.getAndSet(0));
+                resetSpill();
+                return null;
+            }
+            if (spillPending.decrementAndGet() == 0) {
+                resetSpill(); // all the frames are back, start a new file next time
+            }
+        }
+        try {
+            return RawFrame.of(bytes);
+        } catch (JsonParseException e) {
+            client.getCore().getLogger().error("Unable to read the event from the spill file, it is lost.", e);
+            dropped.incrementAndGet();
+            return null;
+        }
+    }
+
+    // spillLock must be held
+    private void resetSpill() {
+        try {
+            if (spillIn != null) {
+                spillIn.close();
+            }
+            if (spillOut != null) {
+                spillOut.close();
+            }
+        } catch (IOException ignored) {
+        }
+        spillIn = null;
+        spillOut = null;
+        //noinspection ResultOfMethodCallIgnored
+        spillFile.delete();
+    }
+
+    private static byte[] encode(Frame frame) {
+        if (frame instanceof RawFrame) {
+            return ((RawFrame) frame).toBytes();
+        }
+        final JsonObject object = new JsonObject();
+        object.addProperty("s", frame.getType().getType());
+        object.addProperty("sn", frame.getSN());
+        object.add("d", frame.getData());
+        return NORMAL_GSON.toJson(object).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void scheduleDrain() {
+        if (retryScheduled.get()) {
+            return; // the dispatcher is saturated, the retry will do it
+        }
+        if ((!queue.isEmpty() || spillPending.get() > 0) && draining.compareAndSet(false, true)) {
+            try {
+                client.getEventExecutor().execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false); // the client is stopping
+            }
+        }
+    }
+
+    // Try again later, when the dispatcher may have room.
+    private void scheduleDrainLater() {
+        if (retryScheduled.compareAndSet(false, true)) {
+            NetworkScheduler.timer().schedule(() -> {
+                retryScheduled.set(false);
+                scheduleDrain();
+            }, SATURATED_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Run on the Event Executor. Process a batch, then give other tasks (e.g. gap checks) a chance to run.
+    // The frames are not taken while the dispatcher is saturated, so they stay here and the policy applies.
+    private void drain() {
+        boolean saturated = false;
+        try {
+            for (int i = 0; i < DRAIN_BATCH; i++) {
+                if (client.getEventDispatcher().isSaturated()) {
+                    saturated = true;
+                    break;
+                }
+                synchronized (consumeLock) {
+                    Frame frame = queue.poll();
+                    if (frame == null) {
+                        frame = unspill();
+                    }
+                    if (frame == null) {
+                        break;
+                    }
+                    try {
+                        consumer.accept(frame);
+                    } catch (Exception e) {
+                        client.getCore().getLogger().error("Unexpected exception while processing frame {}", frame, e);
+                    }
+                }
+            }
+        } finally {
+            draining.set(false);
+            if (saturated) {
+                scheduleDrainLater();
+            } else {
+                scheduleDrain();
+            }
+        }
+    }
+
+    private void updateMaxDepth() {
+        final int depth = queue.size();
+        int max;
+        while (depth > (max = maxDepth.get()) && !maxDepth.compareAndSet(max, depth)) {
+            // retry
+        }
+    }
+
+    // The frames waiting in memory and in the spill file.
+    public long getDepth() {
+        return queue.size() + spillPending.get();
+    }
+
+    public int getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getSpilled() {
+        return spilled.get();
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+}
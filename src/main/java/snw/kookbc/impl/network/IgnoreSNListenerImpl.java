@@ -21,43 +21,28 @@ package snw.kookbc.impl.network;
 import snw.kookbc.impl.KBCClient;
 import snw.kookbc.impl.network.ws.Connector;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
-
 public class IgnoreSNListenerImpl extends ListenerImpl {
-    private final List<Integer> processedSN = new LinkedList<>();
 
     public IgnoreSNListenerImpl(KBCClient client, Connector connector) {
         super(client, connector);
-        new Thread(() -> {
-            while (client.isRunning()) {
-                try {
-                    //noinspection BusyWait
-                    Thread.sleep(TimeUnit.SECONDS.toMillis(90));
-                } catch (InterruptedException e) {
-                    return;
-                }
-                synchronized (lck) {
-                    while (processedSN.size() > 700) {
-                        processedSN.remove(0);
-                    }
-                }
-            }
-        }, "SN Cleaner").start();
     }
 
     @Override
     protected void event(Frame frame) {
         synchronized (lck) {
-            if (processedSN.contains(frame.getSN())) {
-                client.getCore().getLogger().warn("Duplicated message from remote. Ignored.");
+            SNWindow processedSN = client.getSession().getProcessedSN();
+            if (!processedSN.mark(frame.getSN())) {
+                client.getCore().getLogger().warn("Duplicated or too old message from remote. Ignored.");
                 return;
             }
             client.getSession().increaseSN();
-            event0(frame);
-            processedSN.add(frame.getSN());
+            dispatch(frame);
             saveSN();
         }
     }
+
+    @Override
+    protected void frameDropped(int sn) {
+        // we don't wait for any SN
+    }
 }
@@ -0,0 +1,124 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// Escapes everything written to it as the content of a JSON string.
+// Uses the same escape rules as Gson (without HTML escaping).
+public class JsonEscapingWriter extends Writer {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private final Writer out;
+
+    public JsonEscapingWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        escape((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        int last = off;
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            if (needsEscape(cbuf[i])) {
+                if (i > last) {
+                    out.write(cbuf, last, i - last);
+                }
+                escape(cbuf[i]);
+                last = i + 1;
+            }
+        }
+        if (end > last) {
+            out.write(cbuf, last, end - last);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        int last = off;
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            if (needsEscape(str.charAt(i))) {
+                if (i > last) {
+                    out.write(str, last, i - last);
+                }
+                escape(str.charAt(i));
+                last = i + 1;
+            }
+        }
+        if (end > last) {
+            out.write(str, last, end - last);
+        }
+    }
+
+    private static boolean needsEscape(char c) {
+        return c < 0x20 || c == '"' || c == '\\' || c == '\u2028' || c == '\u2029';
+    }
+
+    private void escape(char c) throws IOException {
+        switch (c) {
+            case '"':
+                out.write("\\\"");
+                break;
+            case '\\':
+                out.write("\\\\");
+                break;
+            case '\t':
+                out.write("\\t");
+                break;
+            case '\b':
+                out.write("\\b");
+                break;
+            case '\n':
+                out.write("\\n");
+                break;
+            case '\r':
+                out.write("\\r");
+                break;
+            case '\f':
+                out.write("\\f");
+                break;
+            default:
+                if (needsEscape(c)) {
+                    out.write("\\u");
+                    out.write(HEX[(c >> 12) & 0xF]);
+                    out.write(HEX[(c >> 8) & 0xF]);
+                    out.write(HEX[(c >> 4) & 0xF]);
+                    out.write(HEX[c & 0xF]);
+                } else {
+                    out.write(c);
+                }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        // don't close the underlying writer, the request body is still being written
+    }
+}
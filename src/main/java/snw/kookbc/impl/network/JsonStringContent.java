@@ -0,0 +1,34 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+// A request body value that is sent as a JSON string, but the content of the string is JSON too.
+// (e.g. the "content" of card messages)
+// NetworkClient escapes the JSON while it is being written, so the content is never built as
+//  a separate string and encoded again.
+public interface JsonStringContent {
+
+    // Write the content (NOT the escaped string) to the provided writer.
+    void write(JsonWriter writer) throws IOException;
+
+}
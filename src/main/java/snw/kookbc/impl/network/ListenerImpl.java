@@ -24,6 +24,7 @@ import snw.jkook.entity.User;
 import snw.jkook.entity.channel.NonCategoryChannel;
 import snw.jkook.entity.channel.TextChannel;
 import snw.jkook.event.Event;
+import snw.jkook.event.EventManager;
 import snw.jkook.event.channel.ChannelMessageEvent;
 import snw.jkook.event.pm.PrivateMessageReceivedEvent;
 import snw.jkook.message.Message;
@@ -34,15 +35,18 @@ import snw.kookbc.SharedConstants;
 import snw.kookbc.impl.KBCClient;
 import snw.kookbc.impl.command.CommandManagerImpl;
 import snw.kookbc.impl.command.WrappedCommand;
+import snw.kookbc.impl.event.EventManagerImpl;
+import snw.kookbc.impl.message.MessageImpl;
+import snw.kookbc.impl.network.dispatch.EventCoalescer;
 import snw.kookbc.impl.network.exceptions.BadResponseException;
 import snw.kookbc.impl.network.ws.Connector;
 import snw.kookbc.interfaces.network.FrameHandler;
 import snw.kookbc.interfaces.network.webhook.WebhookNetworkSystem;
 
 import java.io.*;
-import java.util.Iterator;
-import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static snw.kookbc.util.GsonUtil.get;
 
@@ -50,10 +54,15 @@ public class ListenerImpl implements FrameHandler {
     protected final KBCClient client;
     protected final Connector connector;
     protected final Object lck = new Object();
+    protected final FrameQueue frameQueue;
+    // the SNs of the frames dropped by the queue, we should not wait for them
+    private final ConcurrentSkipListSet<Integer> droppedSN = new ConcurrentSkipListSet<>();
+    private long watchedGapStart; // the gap that we have scheduled a check for
 
     public ListenerImpl(KBCClient client, Connector connector) {
         this.client = client;
         this.connector = connector;
+        this.frameQueue = new FrameQueue(client, this::event, this::frameDropped);
     }
 
     @Override
@@ -67,7 +76,10 @@ public class ListenerImpl implements FrameHandler {
         }
         switch (frame.getType()) {
             case EVENT:
-                client.getEventExecutor().execute(() -> event(frame));
+                if (connector != null) {
+                    connector.eventReceived();
+                }
+                frameQueue.offer(frame);
                 break;
             case HELLO:
                 hello(frame);
@@ -84,11 +96,12 @@ public class ListenerImpl implements FrameHandler {
                 break;
             case RECONNECT:
                 client.getCore().getLogger().warn("Got RECONNECT request from remote. Attempting to reconnect.");
+                connector.invalidateSession(); // we can't resume this session
                 connector.requestReconnect();
                 break;
             case RESUME_ACK:
-                client.getCore().getLogger().info("Resume finished");
                 client.getSession().setId(frame.getData().get("session_id").getAsString());
+                connector.resumeAck();
                 break;
         }
     }
@@ -97,52 +110,177 @@ public class ListenerImpl implements FrameHandler {
         synchronized (lck) {
             client.getCore().getLogger().debug("Got EVENT");
             Session session = client.getSession();
-            AtomicInteger sn = session.getSN();
-            Set<Frame> buffer = session.getBuffer();
-            int expected = Session.UPDATE_FUNC.applyAsInt(sn.get());
+            ReorderBuffer buffer = session.getBuffer();
             int actual = frame.getSN();
+            int expected = Session.UPDATE_FUNC.applyAsInt(session.getSN().get());
+            if (actual < expected) {
+                if (client.getConfig().getBoolean("allow-warn-old-message")) {
+                    client.getCore().getLogger().warn("Unexpected old message from remote. Dropped it.");
+                }
+                return;
+            }
+            if (actual > expected) {
+                // make room for the frame, the oldest gaps are given up first
+                while (!buffer.fits(actual, expected) && !buffer.isEmpty()) {
+                    client.getCore().getLogger().warn("SN buffer is full.");
+                    skipGap();
+                    expected = Session.UPDATE_FUNC.applyAsInt(session.getSN().get());
+                }
+                if (actual < expected) {
+                    return; // processed by skipGap, it was a duplicate
+                }
+                if (!buffer.fits(actual, expected)) { // still too far ahead, and nothing to process
+                    client.getCore().getLogger().warn("SN {} to {} never arrived, skipped them.", expected, actual - 1);
+                    buffer.recordSkip(actual - expected);
+                    session.getSN().set(actual - 1);
+                    expected = actual;
+                }
+            }
             if (actual > expected) {
                 client.getCore().getLogger().warn("Unexpected wrong SN, expected {}, got {}", expected, actual);
                 client.getCore().getLogger().warn("We will process it later.");
-                buffer.add(frame);
-            } else if (expected == actual) {
-                event0(frame);
-                session.increaseSN();
+                buffer.put(frame, expected);
+                if (!droppedSN.isEmpty() && drain()) { // maybe we are waiting for a dropped frame
+                    buffer.progressed();
+                }
+            } else {
+                process(frame);
+                drain();
+                buffer.progressed();
+            }
+            watchGap();
+        }
+    }
+
+    // Process the frame in order, then update the SN.
+    private void process(Frame frame) {
+        dispatch(frame);
+        client.getSession().increaseSN();
+        saveSN();
+    }
+
+    // Process the buffered frames that are ready now.
+    // Return true if the SN moved forward.
+    private boolean drain() {
+        Session session = client.getSession();
+        ReorderBuffer buffer = session.getBuffer();
+        int start = session.getSN().get();
+        while (true) {
+            int next = Session.UPDATE_FUNC.applyAsInt(session.getSN().get());
+            Frame bufFrame = buffer.take(next);
+            if (bufFrame != null) {
+                process(bufFrame);
+                client.getCore().getLogger().debug("Processed message in buffer with SN {}", bufFrame.getSN());
+            } else if (!droppedSN.isEmpty() && droppedSN.remove(next)) {
+                session.increaseSN(); // it won't come
                 saveSN();
-                if (!buffer.isEmpty()) {
-                    int continueId = sn.get() + 1;
-                    do {
-                        boolean found = false;
-                        Iterator<Frame> bufferIterator = buffer.iterator();
-                        while (bufferIterator.hasNext()) {
-                            Frame bufFrame = bufferIterator.next();
-                            if (bufFrame.getSN() == continueId) {
-                                found = true;       // we found the frame matching the continueId,
-                                // so we will continue after the frame got processed
-                                event0(bufFrame);
-                                session.increaseSN(); // make sure the SN will update!
-                                saveSN();
-                                continueId++;
-                                bufferIterator.remove(); // we won't need this frame, because it has processed
-                                client.getCore().getLogger().debug("Processed message in buffer with SN {}", bufFrame.getSN());
-                                break;
-                            }
-                        }
-                        if (!found) {
-                            break;
-                        }
-                    } while (true);
+            } else {
+                break;
+            }
+        }
+        if (!droppedSN.isEmpty()) {
+            droppedSN.headSet(Session.UPDATE_FUNC.applyAsInt(session.getSN().get())).clear(); // the old ones
+        }
+        return session.getSN().get() != start;
+    }
+
+    // Give up the missing SNs before the first buffered frame, then process the buffered frames.
+    private void skipGap() {
+        Session session = client.getSession();
+        ReorderBuffer buffer = session.getBuffer();
+        int expected = Session.UPDATE_FUNC.applyAsInt(session.getSN().get());
+        int first = buffer.first(expected);
+        if (first == -1) {
+            return;
+        }
+        client.getCore().getLogger().warn("SN {} to {} never arrived, skipped them.", expected, first - 1);
+        buffer.recordSkip(first - expected);
+        session.getSN().set(first - 1);
+        drain();
+        buffer.progressed();
+    }
+
+    // Called by the queue if it dropped the frame because of overload.
+    protected void frameDropped(int sn) {
+        droppedSN.add(sn);
+        try {
+            client.getEventExecutor().execute(() -> {
+                synchronized (lck) {
+                    if (drain()) { // the dropped frame may be the one that we are waiting for
+                        client.getSession().getBuffer().progressed();
+                    }
+                    watchGap();
                 }
-            } else if(client.getConfig().getBoolean("allow-warn-old-message")){
-                client.getCore().getLogger().warn("Unexpected old message from remote. Dropped it.");
+            });
+        } catch (RejectedExecutionException ignored) { // the client is stopping
+        }
+    }
+
+    // Forget the state of the old session, remote will count from SN 1 again.
+    // The frames of the old session that are still waiting in the queue are discarded.
+    public void resetSession() {
+        frameQueue.clear(() -> { // lock order: the queue, then lck (same as the frames being consumed)
+            synchronized (lck) {
+                droppedSN.clear();
+                watchedGapStart = 0;
+                client.getSession().getSN().set(0);
+                client.getSession().getBuffer().clear();
+                client.getSession().getProcessedSN().clear();
+            }
+        });
+    }
+
+    public FrameQueue getFrameQueue() {
+        return frameQueue;
+    }
+
+    // Schedule a check for the current gap, so the buffered frames won't wait forever.
+    private void watchGap() {
+        final long gapTimeout = gapTimeoutNanos();
+        final long gapStart = client.getSession().getBuffer().getGapStart();
+        if (gapTimeout <= 0 || gapStart == 0 || gapStart == watchedGapStart) {
+            return;
+        }
+        watchedGapStart = gapStart;
+        NetworkScheduler.timer().schedule(
+                () -> client.getEventExecutor().execute(this::checkGap), // process it on the event thread
+                gapTimeout, TimeUnit.NANOSECONDS
+        );
+    }
+
+    private void checkGap() {
+        synchronized (lck) {
+            ReorderBuffer buffer = client.getSession().getBuffer();
+            if (buffer.isGapExpired(gapTimeoutNanos())) {
+                client.getCore().getLogger().warn("Waited too long for the missing SN.");
+                skipGap();
+                watchGap();
             }
         }
     }
 
+    private long gapTimeoutNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(client.getConfig().getInt("sn-gap-timeout", 10000));
+    }
+
+    // Create and call the event on the thread chosen by the dispatcher, see EventDispatcher.
+    // The state updates may be held by the coalescer for a while, see EventCoalescer.
+    protected void dispatch(Frame frame) {
+        final EventCoalescer coalescer = client.getEventCoalescer();
+        if (coalescer != null && coalescer.offer(frame, this::dispatchNow)) {
+            return; // it will be dispatched when the coalescing window closes
+        }
+        dispatchNow(frame);
+    }
+
+    protected void dispatchNow(Frame frame) {
+        client.getEventDispatcher().dispatch(frame, () -> event0(frame));
+    }
+
     protected void event0(Frame frame) {
         Event event;
         try {
-            event = client.getEventFactory().createEvent(frame.getData());
+            event = client.getEventFactory().createEvent(frame);
         } catch (Exception e) {
             client.getCore().getLogger().error("Unable to create event from payload.");
             client.getCore().getLogger().error("Event payload: {}", frame);
@@ -153,7 +291,12 @@ public class ListenerImpl implements FrameHandler {
             return;
         }
         if (!executeCommand(event)) {
-            client.getCore().getEventManager().callEvent(event);
+            final EventManager eventManager = client.getCore().getEventManager();
+            if (eventManager instanceof EventManagerImpl) {
+                ((EventManagerImpl) eventManager).callEvent(event, frame.getHeader());
+            } else {
+                eventManager.callEvent(event);
+            }
         }
     }
 
@@ -176,12 +319,14 @@ public class ListenerImpl implements FrameHandler {
 
     protected void hello(Frame frame) {
         client.getCore().getLogger().debug("Got HELLO");
-        connector.setConnected(true);
         JsonObject object = frame.getData();
         int status = get(object, "code").getAsInt();
         if (status == 0) {
             client.getSession().setId(get(object, "session_id").getAsString());
+            connector.helloReceived();
         } else {
+            client.getCore().getLogger().warn("Remote refused our connection. Code: {}", status);
+            connector.invalidateSession(); // the session may be expired, so don't resume it
             connector.requestReconnect();
         }
     }
@@ -203,6 +348,9 @@ public class ListenerImpl implements FrameHandler {
         } else {
             msg = ((PrivateMessageReceivedEvent) event).getMessage();
         }
+        if (msg instanceof MessageImpl && !((MessageImpl) msg).isComponentDecoded()) {
+            return false; // only the cards are decoded lazily, don't decode it just for knowing it is not a command
+        }
         sender = msg.getSender();
         baseComponent = msg.getComponent();
         if (baseComponent instanceof TextComponent) {
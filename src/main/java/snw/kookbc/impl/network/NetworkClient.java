@@ -20,6 +20,7 @@ package snw.kookbc.impl.network;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
 import okhttp3.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -27,6 +28,9 @@ import snw.kookbc.impl.KBCClient;
 import snw.kookbc.impl.network.exceptions.BadResponseException;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.time.Duration;
 import java.util.Map;
 import java.util.Objects;
@@ -66,7 +70,49 @@ public class NetworkClient {
     }
 
     public String postContent(String fullUrl, Map<?, ?> body) {
-        return postContent(fullUrl, NORMAL_GSON.toJson(body), "application/json");
+        return postContent(fullUrl, writeBody(body), "application/json");
+    }
+
+    // Same as NORMAL_GSON.toJson(body), but the JsonStringContent values are escaped while they are written,
+    //  so the large ones (e.g. card messages) are encoded only once.
+    // The body object itself is written by hand, JsonWriter cannot write a string value in pieces.
+    public static String writeBody(Map<?, ?> body) {
+        final StringWriter out = new StringWriter(256);
+        final JsonEscapingWriter escaping = new JsonEscapingWriter(out);
+        try {
+            out.write('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : body.entrySet()) {
+                final Object value = entry.getValue();
+                if (value == null) {
+                    continue; // same as NORMAL_GSON, null values are not written
+                }
+                if (!first) {
+                    out.write(',');
+                }
+                first = false;
+                out.write('"');
+                escaping.write(String.valueOf(entry.getKey()));
+                out.write("\":");
+                if (value instanceof JsonStringContent) {
+                    out.write('"');
+                    ((JsonStringContent) value).write(newWriter(escaping));
+                    out.write('"');
+                } else {
+                    NORMAL_GSON.toJson(value, value.getClass(), newWriter(out));
+                }
+            }
+            out.write('}');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // impossible, StringWriter never throws it
+        }
+        return out.toString();
+    }
+
+    private static JsonWriter newWriter(Writer out) {
+        final JsonWriter writer = new JsonWriter(out);
+        writer.setSerializeNulls(false);
+        return writer;
     }
 
     public String postContent(String fullUrl, String body, String mediaType) {
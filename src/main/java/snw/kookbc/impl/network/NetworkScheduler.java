@@ -0,0 +1,65 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The threads shared by the network modules of all clients in this JVM.
+// The timer is for short tasks (e.g. sending PING, checking timeouts), never block it.
+// Blocking work (e.g. reconnecting, REST calls) should be submitted to the worker.
+// All threads are daemon threads, so they won't prevent the JVM from exiting.
+public final class NetworkScheduler {
+
+    private NetworkScheduler() {
+    }
+
+    public static ScheduledExecutorService timer() {
+        return Holder.TIMER;
+    }
+
+    public static ExecutorService worker() {
+        return Holder.WORKER;
+    }
+
+    private static ThreadFactory daemonFactory(String prefix) {
+        final AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // lazy initialization, the threads won't be created if we are in Webhook mode
+    private static final class Holder {
+        private static final ScheduledExecutorService TIMER;
+        private static final ExecutorService WORKER = Executors.newCachedThreadPool(daemonFactory("Network Worker #"));
+
+        static {
+            ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, daemonFactory("Network Timer #"));
+            timer.setRemoveOnCancelPolicy(true); // cancelled timeout tasks should not stay in the queue
+            TIMER = timer;
+        }
+    }
+}
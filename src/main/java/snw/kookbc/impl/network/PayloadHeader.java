@@ -0,0 +1,181 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+// The cheap part of the "d" object of a frame.
+// It contains the fields that are used for deciding what to do with the frame,
+//  so that we don't need the full JSON tree for frames that we won't process.
+public class PayloadHeader {
+    public static final PayloadHeader EMPTY = new PayloadHeader();
+
+    private String channelType;
+    private String type;
+    private String targetId;
+    private String authorId;
+    private String verifyToken;
+    private String extraType;
+    private String guildId;
+
+    private PayloadHeader() {
+    }
+
+    // Read the header from the parsed "d" object.
+    public static PayloadHeader of(JsonObject d) {
+        if (d == null) {
+            return EMPTY;
+        }
+        final PayloadHeader header = new PayloadHeader();
+        header.channelType = getString(d, "channel_type");
+        header.type = getString(d, "type");
+        header.targetId = getString(d, "target_id");
+        header.authorId = getString(d, "author_id");
+        header.verifyToken = getString(d, "verify_token");
+        final JsonElement extra = d.get("extra");
+        if (extra != null && extra.isJsonObject()) {
+            header.extraType = getString(extra.getAsJsonObject(), "type");
+            header.guildId = getString(extra.getAsJsonObject(), "guild_id");
+        }
+        return header;
+    }
+
+    // Read the header from the "d" object without building the JSON tree.
+    // The reader should be positioned at the beginning of the "d" object.
+    public static PayloadHeader read(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return EMPTY;
+        }
+        final PayloadHeader header = new PayloadHeader();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "channel_type":
+                    header.channelType = nextString(reader);
+                    break;
+                case "type":
+                    header.type = nextString(reader);
+                    break;
+                case "target_id":
+                    header.targetId = nextString(reader);
+                    break;
+                case "author_id":
+                    header.authorId = nextString(reader);
+                    break;
+                case "verify_token":
+                    header.verifyToken = nextString(reader);
+                    break;
+                case "extra":
+                    readExtra(reader, header);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return header;
+    }
+
+    private static void readExtra(JsonReader reader, PayloadHeader header) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "type":
+                    header.extraType = nextString(reader);
+                    break;
+                case "guild_id":
+                    header.guildId = nextString(reader);
+                    break;
+                default:
+                    reader.skipValue(); // the body, author objects, etc.
+            }
+        }
+        reader.endObject();
+    }
+
+    // Return the value as string if it is a string or number, or null.
+    static String nextString(JsonReader reader) throws IOException {
+        final JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private static String getString(JsonObject object, String key) {
+        final JsonElement element = object.get(key);
+        if (element == null || !element.isJsonPrimitive()) {
+            return null;
+        }
+        return element.getAsString();
+    }
+
+    public String getChannelType() {
+        return channelType;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getTargetId() {
+        return targetId;
+    }
+
+    public String getAuthorId() {
+        return authorId;
+    }
+
+    public String getVerifyToken() {
+        return verifyToken;
+    }
+
+    // The "type" field in the "extra" object. The event type name (or the message type) is here.
+    public String getExtraType() {
+        return extraType;
+    }
+
+    // The "guild_id" field in the "extra" object, only exists in the message events from guilds.
+    public String getGuildId() {
+        return guildId;
+    }
+
+    @Override
+    public String toString() {
+        return "PayloadHeader{" +
+                "channelType=" + channelType +
+                ", type=" + type +
+                ", targetId=" + targetId +
+                ", authorId=" + authorId +
+                ", extraType=" + extraType +
+                ", guildId=" + guildId +
+                '}';
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+// A frame that keeps the raw JSON it came from.
+// Only "s" and "sn" are read when it is created, that's cheap enough to be done on the network thread.
+// The "d" object is parsed on first getData() call, and getHeader() reads the cheap fields of it
+//  without building the JSON tree, so the frames that we won't process never pay for a full parse.
+public class RawFrame extends Frame {
+    private final byte[] bytes; // UTF-8 encoded JSON, or null if the source is a String
+    private final String text;
+    private volatile JsonObject data;
+    // the index of the value of "d" in the raw JSON, 0 if not found yet, -1 if there is no "d"
+    private volatile int dataOffset;
+
+    private RawFrame(int s, int sn, byte[] bytes, String text) {
+        super(s, sn);
+        this.bytes = bytes;
+        this.text = text;
+    }
+
+    // The provided array will be owned by the frame, don't modify it after this call.
+    public static RawFrame of(byte[] utf8Json) {
+        return create(utf8Json, null);
+    }
+
+    public static RawFrame of(String json) {
+        return create(null, json);
+    }
+
+    private static RawFrame create(byte[] bytes, String text) {
+        int s = -1;
+        int sn = -1;
+        try (JsonReader reader = newReader(bytes, text)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "s":
+                        s = reader.nextInt();
+                        break;
+                    case "sn":
+                        if (reader.peek() == JsonToken.NULL) {
+                            reader.nextNull();
+                        } else {
+                            sn = reader.nextInt();
+                        }
+                        break;
+                    default:
+                        reader.skipValue(); // don't parse "d" here
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonParseException("Malformed frame", e);
+        }
+        if (s == -1) {
+            throw new JsonParseException("No signal type (\"s\") in the frame");
+        }
+        return new RawFrame(s, sn, bytes, text);
+    }
+
+    @Override
+    public JsonObject getData() {
+        JsonObject result = data;
+        if (result == null) {
+            synchronized (this) {
+                result = data;
+                if (result == null) {
+                    data = result = parseData();
+                }
+            }
+        }
+        return result;
+    }
+
+    // Return true if the JSON tree of "d" has been built, then it is cheaper to use getData() than openData().
+    public boolean isDataParsed() {
+        return data != null;
+    }
+
+    // Open a reader positioned at the value of "d", or return null if there is no "d".
+    // The caller should close the reader, and should not read anything after the value of "d".
+    // The position of "d" is found by the first call (normally the header peek), the later calls start from it.
+    public JsonReader openData() throws IOException {
+        int offset = dataOffset;
+        if (offset == 0) {
+            dataOffset = offset = findData();
+        }
+        if (offset > 0) {
+            return newReader(bytes, text, offset);
+        }
+        return offset < 0 ? null : scanData();
+    }
+
+    // The slow way, for the frames that findData() can't understand.
+    private JsonReader scanData() throws IOException {
+        final JsonReader reader = newReader(bytes, text);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("d".equals(reader.nextName())) {
+                return reader;
+            }
+            reader.skipValue();
+        }
+        reader.close();
+        return null;
+    }
+
+    @Override
+    protected PayloadHeader readHeader() {
+        final JsonObject parsed = data;
+        if (parsed != null) { // the tree is ready, use it
+            return PayloadHeader.of(parsed);
+        }
+        try (JsonReader reader = openData()) {
+            return reader == null ? PayloadHeader.EMPTY : PayloadHeader.read(reader);
+        } catch (IOException | IllegalStateException e) {
+            throw new JsonParseException("Malformed frame", e);
+        }
+    }
+
+    private JsonObject parseData() {
+        try (JsonReader reader = openData()) {
+            if (reader == null || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return null;
+            }
+            return JsonParser.parseReader(reader).getAsJsonObject();
+        } catch (IOException e) {
+            throw new JsonParseException("Malformed frame", e);
+        }
+    }
+
+    // The raw JSON of the whole frame, encoded in UTF-8.
+    public byte[] toBytes() {
+        return bytes != null ? bytes.clone() : text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Find the value of the top-level "d" field without parsing anything.
+    // Return -1 if there is no "d", or 0 if we are not sure (e.g. the key is escaped), then scanData() should be used.
+    // The structural characters are ASCII, and the bytes of a multibyte UTF-8 character are never ASCII,
+    //  so the bytes can be scanned in the same way as the chars.
+    private int findData() {
+        final int length = bytes != null ? bytes.length : text.length();
+        int depth = 0;
+        for (int i = 0; i < length; i++) {
+            final int c = charAt(i);
+            if (c == '"') {
+                final int start = i;
+                for (i++; i < length && charAt(i) != '"'; i++) {
+                    if (charAt(i) == '\\') {
+                        if (depth == 1) {
+                            return 0; // maybe an escaped key
+                        }
+                        i++;
+                    }
+                }
+                if (depth == 1 && i == start + 2 && charAt(start + 1) == 'd') {
+                    int j = skipWhitespace(i + 1, length);
+                    if (j < length && charAt(j) == ':') { // it is a key
+                        j = skipWhitespace(j + 1, length);
+                        return j < length ? j : 0;
+                    }
+                }
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+        }
+        return depth == 0 ? -1 : 0;
+    }
+
+    private int skipWhitespace(int i, int length) {
+        while (i < length) {
+            final int c = charAt(i);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private int charAt(int i) {
+        return bytes != null ? bytes[i] : text.charAt(i);
+    }
+
+    private static JsonReader newReader(byte[] bytes, String text) {
+        if (bytes != null) {
+            return new JsonReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+        }
+        return new JsonReader(new StringReader(text));
+    }
+
+    private static JsonReader newReader(byte[] bytes, String text, int offset) throws IOException {
+        if (bytes != null) {
+            return new JsonReader(new InputStreamReader(new ByteArrayInputStream(bytes, offset, bytes.length - offset), StandardCharsets.UTF_8));
+        }
+        final StringReader reader = new StringReader(text);
+        //noinspection ResultOfMethodCallIgnored
+        reader.skip(offset); // no copy of the text
+        return new JsonReader(reader);
+    }
+
+    @Override
+    public String toString() {
+        return "RawFrame{" +
+                "type=" + getType() +
+                ", sn=" + getSN() +
+                ", raw=" + (bytes != null ? new String(bytes, StandardCharsets.UTF_8) : text) +
+                '}';
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network;
+
+import java.util.Arrays;
+
+// Holds the frames that arrived earlier than their predecessors.
+// The frames are stored in a ring indexed by SN, so storing a frame and taking the next one are O(1).
+// Only the frames with SN in [expected, expected + capacity) can be stored,
+//  the caller should skip the gap if a frame is too far ahead (see ListenerImpl).
+// Not thread-safe, the caller should synchronize the access.
+public class ReorderBuffer {
+    private final Frame[] slots;
+    private int size;
+    private long gapStart; // System.nanoTime() when we started to wait for the current gap, 0 if no gap
+    // statistics
+    private long gaps;
+    private long skipped;
+    private int maxDepth;
+
+    public ReorderBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.slots = new Frame[capacity];
+    }
+
+    // Return true if a frame with the provided SN can be stored when we are waiting for the expected SN.
+    public boolean fits(int sn, int expected) {
+        return sn >= expected && sn - expected < slots.length;
+    }
+
+    // Return false if the frame is a duplicate.
+    public boolean put(Frame frame, int expected) {
+        final int sn = frame.getSN();
+        if (!fits(sn, expected)) {
+            throw new IllegalArgumentException("SN " + sn + " is out of the window starting from " + expected);
+        }
+        final int index = indexOf(sn);
+        if (slots[index] != null) {
+            return false;
+        }
+        slots[index] = frame;
+        if (size++ == 0) {
+            gaps++;
+            gapStart = System.nanoTime();
+        }
+        maxDepth = Math.max(maxDepth, size);
+        return true;
+    }
+
+    // Remove and return the frame with the provided SN, or null if we don't have it.
+    public Frame take(int sn) {
+        final int index = indexOf(sn);
+        final Frame frame = slots[index];
+        if (frame == null || frame.getSN() != sn) {
+            return null;
+        }
+        slots[index] = null;
+        size--;
+        return frame;
+    }
+
+    // Return the lowest SN in the buffer, or -1 if the buffer is empty.
+    public int first(int expected) {
+        if (size == 0) {
+            return -1;
+        }
+        for (int i = 0; i < slots.length; i++) {
+            final Frame frame = slots[indexOf(expected + i)];
+            if (frame != null) {
+                return frame.getSN();
+            }
+        }
+        return -1;
+    }
+
+    // Called after the expected SN moved forward.
+    // If there are frames left, they are waiting for a new gap.
+    public void progressed() {
+        if (size == 0) {
+            gapStart = 0;
+        } else {
+            gaps++;
+            gapStart = System.nanoTime();
+        }
+    }
+
+    public void recordSkip(int count) {
+        skipped += count;
+    }
+
+    public long getGapStart() {
+        return gapStart;
+    }
+
+    public boolean isGapExpired(long timeoutNanos) {
+        return gapStart != 0 && System.nanoTime() - gapStart >= timeoutNanos;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, null);
+        size = 0;
+        gapStart = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    // How many times we had to wait for a missing SN.
+    public long getGaps() {
+        return gaps;
+    }
+
+    // How many SNs we gave up waiting for.
+    public long getSkipped() {
+        return skipped;
+    }
+
+    // The maximum amount of the frames in this buffer at the same time.
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    private int indexOf(int sn) {
+        return Math.floorMod(sn, slots.length);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network;
+
+import java.util.Arrays;
+
+// Remembers which SNs have been seen, within a window below the highest SN seen.
+// One bit per SN in a ring, so it costs no allocation and no cleanup,
+//  the bits of the SNs that left the window are reused by the new SNs.
+// Not thread-safe, the caller should synchronize the access.
+public class SNWindow {
+    private final long[] bits;
+    private final int size; // in bits
+    private boolean empty = true;
+    private int highest;
+    // statistics, only written by the synchronized caller, volatile so they can be read from any thread
+    private volatile long duplicates;
+    private volatile long tooOld;
+
+    public SNWindow(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be positive");
+        }
+        this.bits = new long[(size + 63) >>> 6];
+        this.size = bits.length << 6;
+    }
+
+    // Mark the SN as seen.
+    // Return false if it has been seen, or it is too old to know whether it has been seen.
+    public boolean mark(int sn) {
+        if (empty) {
+            empty = false;
+            highest = sn;
+            set(sn);
+            return true;
+        }
+        if (sn > highest) {
+            // the SNs between them are not seen yet, clear the bits left by the old SNs
+            if ((long) sn - highest >= size) {
+                Arrays.fill(bits, 0L);
+            } else {
+                for (int i = highest + 1; i < sn; i++) {
+                    clear(i);
+                }
+            }
+            highest = sn;
+            set(sn);
+            return true;
+        }
+        if ((long) highest - sn >= size) {
+            tooOld++;
+            return false;
+        }
+        if (isSet(sn)) {
+            duplicates++;
+            return false;
+        }
+        set(sn);
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(bits, 0L);
+        empty = true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    // How many SNs were too old to know whether they have been seen.
+    public long getTooOld() {
+        return tooOld;
+    }
+
+    private boolean isSet(int sn) {
+        final int index = Math.floorMod(sn, size);
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void set(int sn) {
+        final int index = Math.floorMod(sn, size);
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private void clear(int sn) {
+        final int index = Math.floorMod(sn, size);
+        bits[index >>> 6] &= ~(1L << index);
+    }
+}
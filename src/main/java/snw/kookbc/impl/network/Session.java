@@ -18,15 +18,14 @@
 
 package snw.kookbc.impl.network;
 
-import java.util.HashSet;
-import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.IntUnaryOperator;
 
 public class Session {
     public static final IntUnaryOperator UPDATE_FUNC = i -> i + 1;
     private final AtomicInteger sn;
-    private final Set<Frame> buffer = new HashSet<>();
+    private final ReorderBuffer buffer;
+    private final SNWindow processedSN; // only used if we ignore the order of SN
     private String id;
 
     public Session(String id) {
@@ -34,8 +33,18 @@ public class Session {
     }
 
     public Session(String id, AtomicInteger sn) {
+        this(id, sn, new ReorderBuffer(1024));
+    }
+
+    public Session(String id, AtomicInteger sn, ReorderBuffer buffer) {
+        this(id, sn, buffer, new SNWindow(4096));
+    }
+
+    public Session(String id, AtomicInteger sn, ReorderBuffer buffer, SNWindow processedSN) {
         this.id = id;
         this.sn = sn;
+        this.buffer = buffer;
+        this.processedSN = processedSN;
     }
 
     public AtomicInteger getSN() {
@@ -54,7 +63,11 @@ public class Session {
         this.id = id;
     }
 
-    public Set<Frame> getBuffer() {
+    public ReorderBuffer getBuffer() {
         return buffer;
     }
+
+    public SNWindow getProcessedSN() {
+        return processedSN;
+    }
 }
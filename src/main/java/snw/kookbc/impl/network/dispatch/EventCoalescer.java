@@ -0,0 +1,273 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network.dispatch;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import snw.jkook.event.Event;
+import snw.jkook.event.EventManager;
+import snw.kookbc.impl.KBCClient;
+import snw.kookbc.impl.event.EventManagerImpl;
+import snw.kookbc.impl.event.StateUpdateBatchEvent;
+import snw.kookbc.impl.network.Frame;
+import snw.kookbc.impl.network.NetworkScheduler;
+import snw.kookbc.impl.network.PayloadHeader;
+import snw.kookbc.impl.network.RawFrame;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Holds the state update frames (e.g. presence, nickname updates) for a short window,
+//  and keeps only the latest one of each (event type, target, user), the others are never deserialized.
+// When the window closes, the kept frames are dispatched in the order of their last updates.
+// If anyone subscribes to StateUpdateBatchEvent, it is posted with all of their events,
+//  by the one of them that finishes last, so it is posted after all of them in every dispatch mode.
+// Only used on the Event Executor thread, the timer just submits the flush to it.
+public class EventCoalescer {
+    private final KBCClient client;
+    private final long windowMillis;
+    private final Set<String> types;
+    private Map<String, Pending> pending = new LinkedHashMap<>();
+    private boolean scheduled;
+    private volatile Thread owner; // the Event Executor thread, null if nothing has been offered yet
+    private volatile boolean stopped;
+
+    public EventCoalescer(KBCClient client, long windowMillis, Set<String> types) {
+        this.client = client;
+        this.windowMillis = windowMillis;
+        this.types = types;
+    }
+
+    // Return null if it is disabled by the configuration.
+    public static EventCoalescer create(KBCClient client) {
+        final int window = client.getConfig().getInt("event-coalesce-window", 0);
+        if (window <= 0) {
+            return null;
+        }
+        final Set<String> types = new HashSet<>();
+        for (String type : client.getConfig().getString("event-coalesce-types", "guild_member_online,guild_member_offline,updated_guild_member").split(",")) {
+            if (!type.trim().isEmpty()) {
+                types.add(type.trim());
+            }
+        }
+        return types.isEmpty() ? null : new EventCoalescer(client, window, types);
+    }
+
+    // Return true if the frame has been taken, it will be provided to the downstream when the window closes.
+    // The frames without a user ID in their body can't be coalesced, they are not taken.
+    public boolean offer(Frame frame, Consumer<Frame> downstream) {
+        if (stopped) {
+            return false;
+        }
+        owner = Thread.currentThread();
+        final PayloadHeader header = frame.getHeader();
+        final String type = header.getExtraType();
+        if (type == null || !types.contains(type)) {
+            return false;
+        }
+        final String userId;
+        try {
+            userId = readUserId(frame);
+        } catch (IOException | IllegalStateException | JsonParseException e) {
+            return false; // let the event factory report it
+        }
+        if (userId == null) {
+            return false;
+        }
+        final String key = groupOf(type) + '\n' + header.getTargetId() + '\n' + userId;
+        pending.remove(key); // so the order is the order of the last updates
+        pending.put(key, new Pending(frame, downstream));
+        if (!scheduled) {
+            scheduled = true;
+            NetworkScheduler.timer().schedule(() -> {
+                try {
+                    client.getEventExecutor().execute(this::flush);
+                } catch (RejectedExecutionException ignored) { // the client is stopping
+                }
+            }, windowMillis, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    // Dispatch the frames held in the current window, then stop taking new ones.
+    // Call this before the Event Executor and the event dispatcher are shut down,
+    //  it waits until the frames have been handed to the dispatcher.
+    public void shutdown() {
+        final Thread owner = this.owner;
+        if (owner == null) {
+            stopped = true; // nothing has been held
+            return;
+        }
+        if (owner == Thread.currentThread()) {
+            stop();
+            return;
+        }
+        final FutureTask<Void> task = new FutureTask<>(this::stop, null);
+        try {
+            client.getEventExecutor().execute(task);
+            task.get(10, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            stopped = true; // the Event Executor is gone, nobody can dispatch them
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            client.getCore().getLogger().error("Unable to flush the coalesced events", e.getCause());
+        } catch (TimeoutException e) {
+            client.getCore().getLogger().warn("The Event Executor is busy, the coalesced events may be lost.");
+        }
+    }
+
+    private void stop() {
+        stopped = true;
+        flush();
+    }
+
+    private void flush() {
+        scheduled = false;
+        if (pending.isEmpty()) {
+            return;
+        }
+        final Collection<Pending> frames = pending.values();
+        pending = new LinkedHashMap<>();
+        final EventManager manager = client.getCore().getEventManager();
+        // a foreign EventManager cannot tell us about subscribers, so no batch for it
+        if (!(manager instanceof EventManagerImpl)
+                || !((EventManagerImpl) manager).isSubscribed(StateUpdateBatchEvent.class)) {
+            for (Pending it : frames) {
+                it.downstream.accept(it.frame);
+            }
+            return;
+        }
+        final EventManagerImpl eventManager = (EventManagerImpl) manager;
+        // the batch needs the events, so create them here, even if nobody subscribes to their types
+        final List<Event> batch = new ArrayList<>(frames.size());
+        final List<Frame> batchFrames = new ArrayList<>(frames.size());
+        for (Pending it : frames) {
+            final Event event;
+            try {
+                event = client.getEventFactory().createEvent(it.frame, true);
+            } catch (Exception e) {
+                client.getCore().getLogger().error("Unable to create event from payload.");
+                client.getCore().getLogger().error("Event payload: {}", it.frame);
+                e.printStackTrace();
+                continue;
+            }
+            if (event == null) {
+                continue;
+            }
+            batch.add(event);
+            batchFrames.add(it.frame);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        // The events may run on different threads (e.g. different stripes in keyed mode),
+        //  so the batch is posted by the last one to finish, not by us.
+        final StateUpdateBatchEvent batchEvent = new StateUpdateBatchEvent(batch.get(batch.size() - 1).getTimeStamp(), batch);
+        final AtomicInteger remaining = new AtomicInteger(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            final Event event = batch.get(i);
+            final Frame frame = batchFrames.get(i);
+            final PayloadHeader header = frame.getHeader();
+            client.getEventDispatcher().dispatch(frame, () -> {
+                try {
+                    eventManager.callEvent(event, header);
+                } finally {
+                    if (remaining.decrementAndGet() == 0) {
+                        eventManager.callEvent(batchEvent);
+                    }
+                }
+            });
+        }
+    }
+
+    // The online and offline events replace each other, only the latest presence matters.
+    private static String groupOf(String type) {
+        if ("guild_member_online".equals(type) || "guild_member_offline".equals(type)) {
+            return "presence";
+        }
+        return type;
+    }
+
+    // Read "extra.body.user_id" of the frame, or return null if there is no such field.
+    private static String readUserId(Frame frame) throws IOException {
+        if (frame instanceof RawFrame && !((RawFrame) frame).isDataParsed()) {
+            try (JsonReader reader = ((RawFrame) frame).openData()) {
+                if (reader == null || !enter(reader, "extra") || !enter(reader, "body")) {
+                    return null;
+                }
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("user_id".equals(reader.nextName())) {
+                        return reader.peek() == JsonToken.STRING || reader.peek() == JsonToken.NUMBER ? reader.nextString() : null;
+                    }
+                    reader.skipValue();
+                }
+                return null;
+            }
+        }
+        final JsonObject data = frame.getData();
+        final JsonObject body = data != null ? getObject(getObject(data, "extra"), "body") : null;
+        final JsonElement userId = body != null ? body.get("user_id") : null;
+        return userId != null && userId.isJsonPrimitive() ? userId.getAsString() : null;
+    }
+
+    // Move the reader into the object of the provided field. Return false if there is no such object.
+    private static boolean enter(JsonReader reader, String name) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return false;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (name.equals(reader.nextName())) {
+                return reader.peek() == JsonToken.BEGIN_OBJECT;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    private static JsonObject getObject(JsonObject object, String key) {
+        if (object == null) {
+            return null;
+        }
+        final JsonElement element = object.get(key);
+        return element != null && element.isJsonObject() ? element.getAsJsonObject() : null;
+    }
+
+    private static final class Pending {
+        private final Frame frame;
+        private final Consumer<Frame> downstream;
+
+        private Pending(Frame frame, Consumer<Frame> downstream) {
+            this.frame = frame;
+            this.downstream = downstream;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network.dispatch;
+
+import snw.kookbc.impl.KBCClient;
+import snw.kookbc.impl.network.Frame;
+
+// Decides on which thread the events are created and called.
+// The frames are provided in SN order, on the Event Executor thread.
+public interface EventDispatcher {
+
+    // Run the task that processes the frame. The task should be run after the tasks of the earlier frames
+    //  that are required to be ordered before this frame.
+    void dispatch(Frame frame, Runnable task);
+
+    void shutdown();
+
+    // Return true if the dispatcher can't take more tasks without blocking.
+    // The frame queue stops draining while the dispatcher is saturated,
+    //  so the overload policy of the frame queue (see FrameQueue) takes effect.
+    default boolean isSaturated() {
+        return false;
+    }
+
+    // Create the dispatcher specified by the "event-dispatch-mode" configuration item.
+    static EventDispatcher create(KBCClient client) {
+        final String mode = client.getConfig().getString("event-dispatch-mode", "global");
+        final boolean lanes = client.getConfig().getBoolean("event-lanes", false);
+        final int queueSize = Math.max(1, client.getConfig().getInt("event-dispatch-queue-size", 1024));
+        if ("keyed".equals(mode)) {
+            int threads = client.getConfig().getInt("event-dispatch-threads", 0);
+            if (threads <= 0) {
+                threads = Runtime.getRuntime().availableProcessors();
+            }
+            return lanes ? createLaneDispatcher(client, threads, queueSize) : new KeyedEventDispatcher(client, threads, queueSize);
+        }
+        if (!"global".equals(mode)) {
+            client.getCore().getLogger().warn("Unrecognized event dispatch mode: {}, using global mode.", mode);
+        }
+        return lanes ? createLaneDispatcher(client, 1, queueSize) : new GlobalEventDispatcher();
+    }
+
+    static LaneEventDispatcher createLaneDispatcher(KBCClient client, int threads, int queueSize) {
+        final boolean strict = "strict".equals(client.getConfig().getString("event-lane-mode", "weighted"));
+        final int[] weights = {8, 4, 1}; // INTERACTIVE, NORMAL, BULK
+        final String[] configured = client.getConfig().getString("event-lane-weights", "8,4,1").split(",");
+        for (int i = 0; i < weights.length && i < configured.length; i++) {
+            try {
+                weights[i] = Math.max(1, Integer.parseInt(configured[i].trim()));
+            } catch (NumberFormatException e) {
+                client.getCore().getLogger().warn("Invalid event lane weight: {}, using {}.", configured[i], weights[i]);
+            }
+        }
+        return new LaneEventDispatcher(client, threads, queueSize, strict, weights);
+    }
+}
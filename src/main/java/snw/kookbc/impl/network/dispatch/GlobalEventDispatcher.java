@@ -0,0 +1,34 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network.dispatch;
+
+import snw.kookbc.impl.network.Frame;
+
+// All the events are processed one by one on the Event Executor thread, in SN order.
+public class GlobalEventDispatcher implements EventDispatcher {
+
+    @Override
+    public void dispatch(Frame frame, Runnable task) {
+        task.run();
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
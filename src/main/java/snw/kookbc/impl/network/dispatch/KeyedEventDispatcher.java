@@ -0,0 +1,113 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network.dispatch;
+
+import snw.kookbc.impl.KBCClient;
+import snw.kookbc.impl.network.Frame;
+import snw.kookbc.impl.network.PayloadHeader;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// The events with the same ordering key (the guild, or the user for private messages) are processed
+//  one by one in SN order, while the events with different keys are processed in parallel.
+// Each key is bound to one of the single-threaded stripes, so the order is kept without locks.
+// The queue of each stripe is bounded, dispatch() blocks if the queue of the stripe is full.
+public class KeyedEventDispatcher implements EventDispatcher {
+    private final KBCClient client;
+    private final ThreadPoolExecutor[] stripes;
+
+    public KeyedEventDispatcher(KBCClient client, int threads, int queueSize) {
+        this.client = client;
+        this.stripes = new ThreadPoolExecutor[threads];
+        for (int i = 0; i < threads; i++) {
+            final String name = "Event Executor #" + (i + 1);
+            stripes[i] = new ThreadPoolExecutor(
+                    1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueSize),
+                    r -> new Thread(r, name),
+                    KeyedEventDispatcher::waitForRoom
+            );
+        }
+    }
+
+    private static void waitForRoom(Runnable task, ThreadPoolExecutor stripe) {
+        if (stripe.isShutdown()) {
+            return;
+        }
+        try {
+            stripe.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void dispatch(Frame frame, Runnable task) {
+        final String key = orderingKey(frame.getHeader());
+        stripes[stripeOf(key, stripes.length)].execute(() -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                client.getCore().getLogger().error("Unexpected exception while processing event with ordering key {}", key, e);
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.shutdown();
+        }
+    }
+
+    // Saturated if any stripe is full, we don't know the keys of the frames that are not dispatched yet.
+    @Override
+    public boolean isSaturated() {
+        for (ThreadPoolExecutor stripe : stripes) {
+            if (stripe.getQueue().remainingCapacity() == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The guild for guild events, the other user for private events.
+    // Return null if we can't tell, then the frame will be processed in the first stripe.
+    public static String orderingKey(PayloadHeader header) {
+        if ("PERSON".equals(header.getChannelType())) {
+            final String author = header.getAuthorId();
+            // author "1" means the system, then the target is the user that the event is about
+            return author != null && !"1".equals(author) ? "user:" + author : "user:" + header.getTargetId();
+        }
+        if (header.getGuildId() != null) { // message events, the target is the channel
+            return "guild:" + header.getGuildId();
+        }
+        return header.getTargetId() != null ? "guild:" + header.getTargetId() : null; // system events
+    }
+
+    public static int stripeOf(String key, int stripes) {
+        if (key == null) {
+            return 0;
+        }
+        final int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network.dispatch;
+
+import snw.jkook.event.Event;
+import snw.jkook.event.channel.ChannelMessageEvent;
+import snw.jkook.event.guild.GuildUserNickNameUpdateEvent;
+import snw.jkook.event.pm.PrivateMessageReceivedEvent;
+import snw.jkook.event.user.UserClickButtonEvent;
+import snw.jkook.event.user.UserInfoUpdateEvent;
+import snw.jkook.event.user.UserOfflineEvent;
+import snw.jkook.event.user.UserOnlineEvent;
+
+// The lanes of the events. The events in a higher lane are processed before the events in a lower lane,
+//  see LaneExecutor for how the lanes share the thread.
+public enum Lane {
+    // The events that the users are waiting for a response (e.g. commands, button clicks).
+    INTERACTIVE,
+    NORMAL,
+    // The events that come in large amounts and nobody is waiting for (e.g. presence).
+    BULK;
+
+    public static Lane of(Class<? extends Event> eventType) {
+        if (eventType == UserClickButtonEvent.class
+                || eventType == ChannelMessageEvent.class
+                || eventType == PrivateMessageReceivedEvent.class) { // the messages may be commands
+            return INTERACTIVE;
+        }
+        if (eventType == UserOnlineEvent.class
+                || eventType == UserOfflineEvent.class
+                || eventType == GuildUserNickNameUpdateEvent.class
+                || eventType == UserInfoUpdateEvent.class) {
+            return BULK;
+        }
+        return NORMAL;
+    }
+}
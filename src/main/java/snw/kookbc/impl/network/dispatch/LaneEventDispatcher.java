@@ -0,0 +1,84 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network.dispatch;
+
+import snw.kookbc.impl.KBCClient;
+import snw.kookbc.impl.network.Frame;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Classify the events into lanes (see Lane), so the interactive events won't wait behind the bulk events.
+// With one thread, it works like the global mode with lanes.
+// With more threads, the events are also split by ordering key like KeyedEventDispatcher,
+//  and each thread has its own lanes.
+// The order between the events in different lanes is not kept.
+public class LaneEventDispatcher implements EventDispatcher {
+    private final KBCClient client;
+    private final LaneExecutor[] executors;
+    private final Map<Lane, LaneStats> stats;
+
+    public LaneEventDispatcher(KBCClient client, int threads, int queueSize, boolean strict, int[] weights) {
+        this.client = client;
+        final Map<Lane, LaneStats> stats = new EnumMap<>(Lane.class);
+        for (Lane lane : Lane.values()) {
+            stats.put(lane, new LaneStats());
+        }
+        this.stats = Collections.unmodifiableMap(stats);
+        this.executors = new LaneExecutor[threads];
+        for (int i = 0; i < threads; i++) {
+            executors[i] = new LaneExecutor(client, "Event Executor #" + (i + 1), queueSize, strict, weights, this.stats);
+        }
+    }
+
+    @Override
+    public void dispatch(Frame frame, Runnable task) {
+        final Lane lane = Lane.of(client.getEventFactory().getEventType(frame));
+        final LaneExecutor executor = executors.length == 1
+                ? executors[0]
+                : executors[KeyedEventDispatcher.stripeOf(KeyedEventDispatcher.orderingKey(frame.getHeader()), executors.length)];
+        executor.execute(lane, task);
+    }
+
+    @Override
+    public void shutdown() {
+        for (LaneExecutor executor : executors) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isSaturated() {
+        for (LaneExecutor executor : executors) {
+            if (executor.isFull()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public LaneStats getStats(Lane lane) {
+        return stats.get(lane);
+    }
+
+    public Map<Lane, LaneStats> getStats() {
+        return stats;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network.dispatch;
+
+import snw.kookbc.impl.KBCClient;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// A single thread that runs the tasks from several lanes.
+// The tasks in the same lane are run in submission order.
+// In strict mode, a lane is served only if all the higher lanes are empty.
+// In weighted mode, the lanes are served in turn, each lane can run up to its weight of tasks per turn,
+//  so the lower lanes won't starve.
+// The lanes share a bounded capacity, execute() blocks if it is full.
+public class LaneExecutor {
+    private static final Lane[] LANES = Lane.values();
+
+    private final KBCClient client;
+    private final boolean strict;
+    private final int[] weights;
+    private final Map<Lane, LaneStats> stats;
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<Task>[] queues = new ArrayDeque[LANES.length];
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final int capacity;
+    private volatile int size = 0; // the tasks in all lanes, only changed with the lock held
+    private boolean shutdown = false; // guarded by lock
+    // weighted mode state, only accessed by the worker thread
+    private int current = 0;
+    private int used = 0;
+
+    public LaneExecutor(KBCClient client, String name, int capacity, boolean strict, int[] weights, Map<Lane, LaneStats> stats) {
+        this.client = client;
+        this.capacity = capacity;
+        this.strict = strict;
+        this.weights = weights;
+        this.stats = stats;
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+        final Thread thread = new Thread(this::run, name);
+        thread.start();
+    }
+
+    public void execute(Lane lane, Runnable task) {
+        lock.lock();
+        try {
+            while (size >= capacity && !shutdown) {
+                notFull.awaitUninterruptibly();
+            }
+            if (shutdown) {
+                return;
+            }
+            queues[lane.ordinal()].add(new Task(lane, task));
+            size++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The worker thread will exit after the submitted tasks are run.
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            notEmpty.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        Task task;
+        while ((task = take()) != null) {
+            stats.get(task.lane).record(System.nanoTime() - task.submitTime);
+            try {
+                task.runnable.run();
+            } catch (Throwable e) {
+                client.getCore().getLogger().error("Unexpected exception while processing event in lane {}", task.lane, e);
+            }
+        }
+    }
+
+    // Return null if we are shutting down and there is nothing to do.
+    private Task take() {
+        lock.lock();
+        try {
+            while (isEmpty()) {
+                if (shutdown) {
+                    return null;
+                }
+                notEmpty.awaitUninterruptibly();
+            }
+            final Task task = strict ? takeStrict() : takeWeighted();
+            size--;
+            notFull.signal();
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isFull() {
+        return size >= capacity;
+    }
+
+    private Task takeStrict() {
+        for (ArrayDeque<Task> queue : queues) {
+            if (!queue.isEmpty()) {
+                return queue.poll();
+            }
+        }
+        return null;
+    }
+
+    // At least one lane is not empty, and all the weights are positive, so this ends in one round.
+    private Task takeWeighted() {
+        while (true) {
+            if (used < weights[current] && !queues[current].isEmpty()) {
+                used++;
+                return queues[current].poll();
+            }
+            current = (current + 1) % queues.length;
+            used = 0;
+        }
+    }
+
+    private boolean isEmpty() {
+        for (ArrayDeque<Task> queue : queues) {
+            if (!queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Task {
+        private final Lane lane;
+        private final Runnable runnable;
+        private final long submitTime = System.nanoTime();
+
+        private Task(Lane lane, Runnable runnable) {
+            this.lane = lane;
+            this.runnable = runnable;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network.dispatch;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// How long the tasks in a lane waited before they started running.
+// All the values are in milliseconds.
+public class LaneStats {
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalWait = new AtomicLong(); // in nanoseconds
+    private final AtomicLong maxWait = new AtomicLong(); // in nanoseconds
+
+    void record(long waitNanos) {
+        count.incrementAndGet();
+        totalWait.addAndGet(waitNanos);
+        long max;
+        while (waitNanos > (max = maxWait.get()) && !maxWait.compareAndSet(max, waitNanos)) {
+            // retry
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getAverageWait() {
+        final long count = this.count.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWait.get() / count);
+    }
+
+    public long getMaxWait() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWait.get());
+    }
+
+    @Override
+    public String toString() {
+        return "LaneStats{" +
+                "count=" + getCount() +
+                ", avgWait=" + getAverageWait() +
+                ", maxWait=" + getMaxWait() +
+                '}';
+    }
+}
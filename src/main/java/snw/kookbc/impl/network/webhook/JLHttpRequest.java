@@ -69,12 +69,16 @@ public class JLHttpRequest implements Request<JsonObject> {
 
     @Override
     public JsonObject toJson() {
+        return JsonParser.parseString(toJsonString()).getAsJsonObject();
+    }
+
+    @Override
+    public String toJsonString() {
         final String rawBody = getRawBody();
         if (rawBody.isEmpty()) {
-            return new JsonObject();
+            return "{}";
         }
-        final String decryptedBody = EncryptUtils.decrypt(client, rawBody);
-        return JsonParser.parseString(decryptedBody).getAsJsonObject();
+        return EncryptUtils.decrypt(client, rawBody);
     }
 
     @Override
@@ -21,11 +21,13 @@ package snw.kookbc.impl.network.webhook;
 import com.google.gson.JsonObject;
 import snw.kookbc.impl.KBCClient;
 import snw.kookbc.impl.network.Frame;
+import snw.kookbc.impl.network.PayloadHeader;
+import snw.kookbc.impl.network.RawFrame;
 import snw.kookbc.interfaces.network.FrameHandler;
 import snw.kookbc.interfaces.network.webhook.Request;
 import snw.kookbc.interfaces.network.webhook.RequestHandler;
 
-import static snw.kookbc.util.GsonUtil.*;
+import static snw.kookbc.util.GsonUtil.NORMAL_GSON;
 
 public class JLHttpRequestHandler implements RequestHandler<JsonObject> {
     private final String ourToken;
@@ -41,33 +43,22 @@ public class JLHttpRequestHandler implements RequestHandler<JsonObject> {
 
     @Override
     public void handle(Request<JsonObject> request) {
-        final JsonObject object = request.toJson();
-        final int signalType = get(object, "s").getAsInt();
-        final int sn;
-        if (has(object, "sn")) {
-            sn = get(object, "sn").getAsInt();
-        } else {
-            sn = -1;
-        }
-        final JsonObject data = get(object, "d").getAsJsonObject();
-        Frame frame = new Frame(signalType, sn, data);
-        final String gotToken = get(frame.getData(), "verify_token").getAsString();
-        if (!ourToken.equals(gotToken)) {
+        // only the header is read here, the event body will be parsed when it is needed
+        final Frame frame = RawFrame.of(request.toJsonString());
+        final PayloadHeader header = frame.getHeader();
+        if (!ourToken.equals(header.getVerifyToken())) {
             request.reply(400, "");
             return;
         }
-        if (has(frame.getData(), "channel_type")) {
-            final String channelType = get(frame.getData(), "channel_type").getAsString();
-            if ("WEBHOOK_CHALLENGE".equals(channelType)) {
-                // challenge part
-                String challengeValue = frame.getData().get("challenge").getAsString();
-                JsonObject obj = new JsonObject();
-                obj.addProperty("challenge", challengeValue);
-                String challengeJson = NORMAL_GSON.toJson(obj);
-                request.reply(200, challengeJson);
-                return;
-                // end challenge part
-            }
+        if ("WEBHOOK_CHALLENGE".equals(header.getChannelType())) {
+            // challenge part
+            String challengeValue = frame.getData().get("challenge").getAsString();
+            JsonObject obj = new JsonObject();
+            obj.addProperty("challenge", challengeValue);
+            String challengeJson = NORMAL_GSON.toJson(obj);
+            request.reply(200, challengeJson);
+            return;
+            // end challenge part
         }
         handler.handle(frame);
     }
@@ -0,0 +1,35 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network.ws;
+
+// The state of the WebSocket connection.
+// Normal lifecycle: DISCONNECTED -> CONNECTING -> HELLO_WAIT -> CONNECTED,
+//  then CONNECTED -> RECONNECTING -> CONNECTING -> ... if the connection is lost.
+public enum ConnectionState {
+    // Not started yet, or has been shut down.
+    DISCONNECTED,
+    // Opening a new WebSocket connection.
+    CONNECTING,
+    // The WebSocket connection is open, waiting for HELLO (and RESUME_ACK if we are resuming).
+    HELLO_WAIT,
+    // Ready to receive events.
+    CONNECTED,
+    // The connection is lost, waiting for the reconnector.
+    RECONNECTING
+}
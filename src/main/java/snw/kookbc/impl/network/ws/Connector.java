@@ -20,85 +20,203 @@ package snw.kookbc.impl.network.ws;
 
 import okhttp3.Request;
 import okhttp3.WebSocket;
-import snw.jkook.util.Validate;
 import snw.kookbc.impl.KBCClient;
 import snw.kookbc.impl.network.HttpAPIRoute;
+import snw.kookbc.impl.network.Listener;
+import snw.kookbc.impl.network.ListenerFactory;
+import snw.kookbc.impl.network.ListenerImpl;
+import snw.kookbc.impl.network.NetworkScheduler;
+import snw.kookbc.impl.network.Session;
+import snw.kookbc.interfaces.network.FrameHandler;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
 // The Connector. It will communicate with Kook WebSocket Server.
+// The connection is driven by the callbacks of WebSocketMessageProcessor (see ConnectionState),
+//  the connecting threads just wait on the state condition, so they won't consume CPU.
+// Heartbeat and reconnect are tasks on the NetworkScheduler, so no thread is dedicated to a Connector.
 public class Connector {
     private final KBCClient kbcClient;
-    private String wsLink = "";
-    private WebSocket ws;
-    private volatile boolean firstConnected = false; // sub-threads should not work on startup
-    private volatile boolean connected = false;
-    private volatile boolean timeout = false;
-    private volatile boolean pingOk = false;
-    private volatile boolean requireReconnect = false;
-    private final Object reconnectLock = new Object();
+    private final FrameHandler listener; // shared by all the connections
+    private final ListenerImpl sessionListener; // null if the listener is not ours
+    private volatile String wsLink = "";
+    private volatile long wsLinkTime; // System.nanoTime() when we got the wsLink
+    private final long gatewayTtl; // in nanoseconds, 0 means don't reuse
+    private final List<ScheduledFuture<?>> tasks = new ArrayList<>();
+    private volatile WebSocket ws;
+    // heartbeat
+    private final Object heartbeatLock = new Object();
+    private final RttStats rttStats = new RttStats(64);
+    private final int pingRetries;
+    private final int pongTimeoutMin;
+    private final int pongTimeoutMax;
+    private long pingSentAt = 0; // System.nanoTime() when the pending PING was sent, 0 means no pending PING
+    private int pingFailures = 0;
+    private ScheduledFuture<?> pongTimeoutTask;
+    // connection state
+    private final ReentrantLock stateLock = new ReentrantLock();
+    private final Condition stateChanged = stateLock.newCondition();
+    private final CopyOnWriteArrayList<ConnectionStateListener> stateListeners = new CopyOnWriteArrayList<>();
+    private final List<ConnectionState[]> pendingTransitions = new ArrayList<>(); // guarded by stateLock
+    private volatile ConnectionState state = ConnectionState.DISCONNECTED;
+    private volatile WebSocketMessageProcessor currentProcessor; // callbacks from other processors are ignored
+    private boolean helloReceived = false; // guarded by stateLock
+    private boolean attemptFailed = false; // guarded by stateLock
+    private final int helloTimeout;
+    private final int connectAttempts;
+    private final int backoffBase;
+    private final int backoffMax;
+    // RESUME support
+    private final int resumeAttempts;
+    private final int resumeTimeout;
+    private volatile boolean resuming = false;
+    private boolean resumeAcked = false; // guarded by stateLock
+    private volatile boolean sessionInvalid = false; // true if remote sent RECONNECT, so we can't resume
+    private final AtomicInteger recoveredEvents = new AtomicInteger();
 
+    @SuppressWarnings("deprecation")
     public Connector(KBCClient kbcClient) {
         this.kbcClient = kbcClient;
-        new PingThread().start();
-        new Reconnector(kbcClient, reconnectLock, this).start();
+        final Listener created = ListenerFactory.getListener(kbcClient, this);
+        this.listener = created::executeEvent;
+        this.sessionListener = created instanceof ListenerImpl ? (ListenerImpl) created : null;
+        this.helloTimeout = Math.max(1000, kbcClient.getConfig().getInt("ws-hello-timeout", 6000));
+        this.connectAttempts = Math.max(1, kbcClient.getConfig().getInt("ws-connect-attempts", 2));
+        this.backoffBase = Math.max(0, kbcClient.getConfig().getInt("ws-backoff-base", 1000));
+        this.backoffMax = Math.max(backoffBase, kbcClient.getConfig().getInt("ws-backoff-max", 60000));
+        this.resumeAttempts = Math.max(0, kbcClient.getConfig().getInt("ws-resume-attempts", 2));
+        this.resumeTimeout = Math.max(1000, kbcClient.getConfig().getInt("ws-resume-timeout", 30000));
+        this.gatewayTtl = TimeUnit.SECONDS.toNanos(Math.max(0, kbcClient.getConfig().getInt("ws-gateway-ttl", 600)));
+        this.pingRetries = Math.max(0, kbcClient.getConfig().getInt("ws-ping-retries", 2));
+        this.pongTimeoutMin = Math.max(100, kbcClient.getConfig().getInt("ws-pong-timeout-min", 2000));
+        this.pongTimeoutMax = Math.max(pongTimeoutMin, kbcClient.getConfig().getInt("ws-pong-timeout-max", 6000));
+        final int pingInterval = Math.max(1, kbcClient.getConfig().getInt("ws-ping-interval", 30));
+        tasks.add(NetworkScheduler.timer().scheduleWithFixedDelay(this::heartbeat, pingInterval, pingInterval, TimeUnit.SECONDS));
+        if (gatewayTtl > 0) {
+            tasks.add(NetworkScheduler.timer().scheduleWithFixedDelay(
+                    () -> NetworkScheduler.worker().execute(this::refreshGatewayInBackground),
+                    30, 30, TimeUnit.SECONDS
+            ));
+        }
     }
 
     // should only be called on startup
     public void start() {
-        start0();
-        firstConnected = true;
-    }
-
-    private void start0() {
-        getGateway();
+        // the last process may have left an online session, remote won't accept us if so
+        if (kbcClient.getNetworkClient().get(HttpAPIRoute.USER_ME.toFullURL()).get("online").getAsBoolean()) {
+            shutdownHttp();
+        }
+        getGateway(false);
         start1();
     }
 
     private void start1() {
-        do {
-            connected = false;
-            // if self connected is true, call shutdownHttp()
-            if (kbcClient.getNetworkClient().get(HttpAPIRoute.USER_ME.toFullURL()).get("online").getAsBoolean()) {
-                shutdownHttp();
-            }
-            int times = 0;
-            do {
-                ws = kbcClient.getNetworkClient().newWebSocket(
-                        new Request.Builder()
-                                .url(wsLink)
-                                .build(),
-                        new WebSocketMessageProcessor(kbcClient, this)
-                );
-                long ts = System.currentTimeMillis();
-                while (System.currentTimeMillis() - ts < 6000L) {
-                    if (connected) {
-                        break;
-                    }
+        for (int round = 0; kbcClient.isRunning(); round++) {
+            if (round > 0) { // if last round failed, then we need to get a new WS link
+                backoff(round);
+                if (!kbcClient.isRunning()) {
+                    return;
                 }
-                if (!connected) { // I WASTE 2 HOURS ON THIS
-                    shutdownWs();
-                    times++;
+                getGateway(true);
+            }
+            for (int times = 0; times < connectAttempts && kbcClient.isRunning(); times++) {
+                if (connect(wsLink)) {
+                    kbcClient.getCore().getLogger().info("WebSocket Connection OK");
+                    return;
                 }
-            } while (!connected && times < 2);
-            if (!connected) { // if this round failed, then we need to get a new WS link
-                getGateway();
             }
-        } while (!connected);
-        kbcClient.getCore().getLogger().info("WebSocket Connection OK");
+        }
+    }
+
+    // Open a new connection and wait for HELLO.
+    // Return true if the remote said HELLO with code 0 before the timeout.
+    private boolean connect(String url) {
+        final WebSocketMessageProcessor processor = new WebSocketMessageProcessor(kbcClient, this);
+        stateLock.lock();
+        try {
+            currentProcessor = processor;
+            helloReceived = false;
+            attemptFailed = false;
+            setState(ConnectionState.CONNECTING);
+        } finally {
+            unlockState();
+        }
+        resetHeartbeat(); // the PONG from the old connection is meaningless
+        ws = kbcClient.getNetworkClient().newWebSocket(
+                new Request.Builder()
+                        .url(url)
+                        .build(),
+                processor
+        );
+        if (!await(() -> helloReceived || attemptFailed, helloTimeout) || attemptFailed) {
+            kbcClient.getCore().getLogger().warn("Unable to connect to the WebSocket server. (No valid HELLO in {} ms)", helloTimeout);
+            shutdownWs();
+            return false;
+        }
+        return true;
+    }
+
+    // Sleep before the next round, the delay is exponential with jitter,
+    //  so many clients won't reconnect to the server at the same time.
+    private void backoff(int round) {
+        final long max = Math.min(backoffMax, (long) backoffBase << Math.min(round - 1, 20));
+        final long delay = max / 2 + ThreadLocalRandom.current().nextLong(max / 2 + 1);
+        kbcClient.getCore().getLogger().info("Retrying in {} ms.", delay);
+        await(() -> false, delay);
+    }
+
+    // Use the cached link if it is not expired, unless force is true.
+    private void getGateway(boolean force) {
+        if (!force && !wsLink.isEmpty() && System.nanoTime() - wsLinkTime < gatewayTtl) {
+            kbcClient.getCore().getLogger().debug("Using cached WebSocket link.");
+            return;
+        }
+        final String link = kbcClient.getNetworkClient().get(HttpAPIRoute.GATEWAY.toFullURL()).get("url").getAsString();
+        wsLinkTime = System.nanoTime();
+        wsLink = link;
     }
 
-    private void getGateway() {
-        wsLink = kbcClient.getNetworkClient().get(HttpAPIRoute.GATEWAY.toFullURL()).get("url").getAsString();
+    // Get a new link before the cached one expires, so the next reconnect won't wait for it.
+    // Only works when the current connection is healthy, or we will race with the reconnector.
+    private void refreshGatewayInBackground() {
+        if (!kbcClient.isRunning() || !isConnected() || System.nanoTime() - wsLinkTime < gatewayTtl / 5 * 4) {
+            return;
+        }
+        try {
+            getGateway(true);
+            kbcClient.getCore().getLogger().debug("WebSocket link refreshed in background.");
+        } catch (Exception e) {
+            kbcClient.getCore().getLogger().warn("Unable to refresh WebSocket link in background.", e);
+        }
     }
 
     public void shutdown() {
-        setTimeout(false);
+        stateLock.lock();
+        try {
+            setState(ConnectionState.DISCONNECTED);
+        } finally {
+            unlockState();
+        }
+        for (ScheduledFuture<?> task : tasks) {
+            task.cancel(false);
+        }
+        resetHeartbeat();
         shutdownWs();
         shutdownHttp();
     }
 
     private void shutdownWs() {
+        final WebSocket ws = this.ws;
+        currentProcessor = null; // we don't care about the callbacks of the closed connection
         if (ws != null) {
             ws.close(1000, "User Closed Service");
         }
@@ -115,134 +233,369 @@ public class Connector {
     // following methods should be called by other class:
 
     public synchronized void restart() {
-        shutdown();
-        kbcClient.getSession().getSN().set(0);
-        kbcClient.getSession().getBuffer().clear();
-        start0();
+        shutdownWs(); // don't call offline API, or the session will be dropped by remote
+        if (canResume()) {
+            for (int i = 1; i <= resumeAttempts && canResume() && kbcClient.isRunning(); i++) {
+                kbcClient.getCore().getLogger().info("Attempting to resume the session. (Attempt {}/{})", i, resumeAttempts);
+                if (resume()) {
+                    kbcClient.getCore().getLogger().info("WebSocket Connection OK (Resumed)");
+                    return;
+                }
+            }
+            kbcClient.getCore().getLogger().warn("Unable to resume the session. Falling back to full reconnect.");
+        }
+        if (!kbcClient.isRunning()) {
+            return;
+        }
+        // If remote invalidated our session, it has already gone.
+        // Otherwise remote may still consider our old session online, then it won't accept us.
+        if (!sessionInvalid && kbcClient.getSession().getId() != null) {
+            shutdownHttp();
+        }
+        resetSession();
+        getGateway(false);
+        start1();
     }
 
-    public void setConnected(boolean connected) {
-        this.connected = connected;
+    private boolean canResume() {
+        final Session session = kbcClient.getSession();
+        return resumeAttempts > 0
+                && !sessionInvalid
+                && !wsLink.isEmpty()
+                && session.getId() != null
+                && session.getSN().get() > 0;
     }
 
-    public boolean isTimeout() {
-        return timeout;
+    private void resetSession() {
+        sessionInvalid = false;
+        if (sessionListener != null) {
+            sessionListener.resetSession(); // also discards the queued frames of the old session
+            return;
+        }
+        kbcClient.getSession().getSN().set(0);
+        kbcClient.getSession().getBuffer().clear();
+        kbcClient.getSession().getProcessedSN().clear(); // remote will count from 1 again
     }
 
-    public void setTimeout(boolean timeout) {
-        if (timeout) {
-            kbcClient.getCore().getLogger().warn("PING failed. Status is now TIMEOUT.");
+    // return true if the remote accepted our RESUME request
+    private boolean resume() {
+        final Session session = kbcClient.getSession();
+        final int sn = session.getSN().get();
+        stateLock.lock();
+        try {
+            resuming = true;
+            resumeAcked = false;
+            recoveredEvents.set(0);
+        } finally {
+            unlockState();
+        }
+        try {
+            if (!connect(wsLink + "&resume=1&sn=" + sn + "&session_id=" + session.getId())) {
+                return false;
+            }
+            if (!ws.send("{\"s\":4,\"sn\":" + sn + "}")) {
+                shutdownWs();
+                return false;
+            }
+            // remote will send the missed events before RESUME_ACK
+            if (!await(() -> resumeAcked || attemptFailed, resumeTimeout) || attemptFailed) {
+                shutdownWs();
+                return false;
+            }
+            stateLock.lock();
+            try {
+                setState(ConnectionState.CONNECTED);
+            } finally {
+                unlockState();
+            }
+            return true;
+        } finally {
+            resuming = false;
         }
-        this.timeout = timeout;
     }
 
-    public boolean isPingOk() {
-        return pingOk;
+    // Wait until the condition is true, the client is stopping, or the timeout is reached.
+    // The condition is evaluated with the state lock held.
+    // Return true if the condition is true.
+    private boolean await(BooleanSupplier condition, long timeoutMillis) {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        stateLock.lock();
+        try {
+            while (!condition.getAsBoolean()) {
+                if (remaining <= 0 || !kbcClient.isRunning() || state == ConnectionState.DISCONNECTED) {
+                    return false;
+                }
+                try {
+                    remaining = stateChanged.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            stateLock.unlock();
+        }
     }
 
-    public void setPingOk(boolean pingOk) {
-        this.pingOk = pingOk;
+    // Run on the network worker after the state changed to RECONNECTING.
+    private void reconnect() {
+        synchronized (this) { // same as restart, so only one reconnect can run at the same time
+            if (state != ConnectionState.RECONNECTING || !kbcClient.isRunning()) {
+                return; // already reconnected by an earlier request
+            }
+            try {
+                restart();
+            } catch (Exception e) {
+                kbcClient.getCore().getLogger().error("Unexpected exception while reconnecting.", e);
+            }
+        }
     }
 
-    public void ping() {
-        if (!kbcClient.isRunning()) {
-            throw new RuntimeException("The client is not running! (If you see this when the client is stopping, please ignore this)");
-        }
-        if (!connected) { // Let PING Thread wait until the connector success.
-            setTimeout(false);
-            setPingOk(true);
+    // stateLock must be held
+    private void setState(ConnectionState newState) {
+        final ConnectionState oldState = state;
+        if (oldState == newState) {
             return;
         }
-        kbcClient.getCore().getLogger().trace("Attempting to PING.");
-        setPingOk(false);
-        boolean queued = ws.send(String.format("{\"s\":2,\"sn\":%s}", kbcClient.getSession().getSN().get()));
-        Validate.isTrue(queued, "Unable to queue ping request");
+        state = newState;
+        stateChanged.signalAll();
+        if (!stateListeners.isEmpty()) {
+            pendingTransitions.add(new ConnectionState[]{oldState, newState});
+        }
+        kbcClient.getCore().getLogger().debug("WebSocket connection state: {} -> {}", oldState, newState);
     }
 
-    public void pong() {
-        setPingOk(true);
-        if (isTimeout()) {
-            setTimeout(false);
+    // Unlock the state lock, then notify the listeners outside the lock.
+    private void unlockState() {
+        final ConnectionState[][] transitions;
+        if (pendingTransitions.isEmpty()) {
+            transitions = null;
+        } else {
+            transitions = pendingTransitions.toArray(new ConnectionState[0][]);
+            pendingTransitions.clear();
+        }
+        stateLock.unlock();
+        if (transitions != null) {
+            for (ConnectionState[] transition : transitions) {
+                for (ConnectionStateListener listener : stateListeners) {
+                    try {
+                        listener.onStateChanged(transition[0], transition[1]);
+                    } catch (Throwable e) {
+                        kbcClient.getCore().getLogger().error("Unexpected exception in connection state listener.", e);
+                    }
+                }
+            }
         }
     }
 
-    public void requestReconnect() {
-        if (!requireReconnect) {
-            synchronized (reconnectLock) {
-                if (!requireReconnect) {
-                    requireReconnect = true;
-                    connected = false;
-                    reconnectLock.notifyAll();
+    // called by the processors, return true if the processor belongs to the current connection
+    boolean isCurrent(WebSocketMessageProcessor processor) {
+        return processor == currentProcessor;
+    }
+
+    // called when the WebSocket connection is open
+    void opened(WebSocketMessageProcessor processor) {
+        stateLock.lock();
+        try {
+            if (processor == currentProcessor && state == ConnectionState.CONNECTING) {
+                setState(ConnectionState.HELLO_WAIT);
+            }
+        } finally {
+            unlockState();
+        }
+    }
+
+    // called when remote said HELLO with code 0
+    public void helloReceived() {
+        stateLock.lock();
+        try {
+            if (state == ConnectionState.CONNECTING || state == ConnectionState.HELLO_WAIT) {
+                helloReceived = true;
+                if (resuming) {
+                    stateChanged.signalAll(); // we are not ready until RESUME_ACK
+                } else {
+                    setState(ConnectionState.CONNECTED);
                 }
             }
+        } finally {
+            unlockState();
         }
     }
 
-    public KBCClient getParent() {
-        return kbcClient;
+    // called when remote accepted our RESUME request
+    public void resumeAck() {
+        stateLock.lock();
+        try {
+            resumeAcked = true;
+            stateChanged.signalAll();
+        } finally {
+            unlockState();
+        }
+        kbcClient.getCore().getLogger().info("Resume finished. Recovered {} event(s).", recoveredEvents.get());
     }
 
-    public void reconnectOk() {
-        requireReconnect = false;
+    // called when remote sent RECONNECT, or rejected our session.
+    // The SN and session should be reset, so the next reconnect will be a full reconnect.
+    public void invalidateSession() {
+        sessionInvalid = true;
     }
 
-    public boolean isRequireReconnect() {
-        return requireReconnect && firstConnected;
+    // called when an EVENT frame got received
+    public void eventReceived() {
+        if (resuming) {
+            recoveredEvents.incrementAndGet();
+        }
     }
 
-    public boolean isConnected() {
-        return connected;
+    public boolean isResuming() {
+        return resuming;
     }
 
-    protected class PingThread extends Thread {
+    // the amount of the events replayed by remote during the last resume
+    public int getRecoveredEvents() {
+        return recoveredEvents.get();
+    }
 
-        public PingThread() {
-            super("Ping Thread");
-            this.setDaemon(true);
-        }
+    public ConnectionState getState() {
+        return state;
+    }
 
-        @Override
-        public void run() {
-            try {
-                run0();
-            } catch (InterruptedException ignored) {
-            } catch (Throwable e) {
-                kbcClient.getCore().getLogger().error("PING Thread terminated by critical exception.", e);
-            }
-        }
-
-        private void run0() throws InterruptedException {
-            while (kbcClient.isRunning()) {
-                sleep(30);
-                if (!connected) continue;
-                ping();
-                sleep(6);
-                if (isTimeout()) {
-                    int times = 0;
-                    do {
-                        ping();
-                        sleep(++times == 1 ? 2 : 4);
-                        if (isPingOk()) {
-                            break; // why should I ping again????
-                        }
-                    } while (times < 2);
-                    if (Thread.currentThread().isInterrupted()) {
-                        return;
-                    }
-                    if (!isPingOk()) {
-                        kbcClient.getCore().getLogger().warn("PING failed. Attempting to reconnect.");
-                        requestReconnect();
-                        // actually, we should try to RESUME at this time.
-                        // but RESUME always fail (e.g. received RECONNECT after RESUME_ACK)
-                        // so we won't support RESUME until the problem be solved.
-                    }
+    public void addStateListener(ConnectionStateListener listener) {
+        stateListeners.addIfAbsent(listener);
+    }
+
+    public void removeStateListener(ConnectionStateListener listener) {
+        stateListeners.remove(listener);
+    }
+
+    // Called by the timer. Send PING if we are connected and there is no pending PING.
+    private void heartbeat() {
+        if (!kbcClient.isRunning() || !isConnected()) {
+            return;
+        }
+        try {
+            synchronized (heartbeatLock) {
+                if (pingSentAt == 0) { // or the timeout task will handle the pending PING
+                    ping();
                 }
             }
+        } catch (Exception e) { // don't let the exception cancel the periodic task
+            kbcClient.getCore().getLogger().error("Unexpected exception while sending PING.", e);
+        }
+    }
+
+    // heartbeatLock must be held
+    private void ping() {
+        final WebSocket ws = this.ws;
+        kbcClient.getCore().getLogger().trace("Attempting to PING.");
+        pingSentAt = System.nanoTime();
+        if (ws == null || !ws.send("{\"s\":2,\"sn\":" + kbcClient.getSession().getSN().get() + "}")) {
+            pingSentAt = 0;
+            kbcClient.getCore().getLogger().warn("Unable to queue PING. Attempting to reconnect.");
+            requestReconnect();
+            return;
+        }
+        pongTimeoutTask = NetworkScheduler.timer().schedule(this::pongTimeout, getPongTimeout(), TimeUnit.MILLISECONDS);
+    }
+
+    // Called by the timer if no PONG arrived in time.
+    private void pongTimeout() {
+        synchronized (heartbeatLock) {
+            if (pingSentAt == 0) {
+                return; // PONG arrived just now
+            }
+            pingSentAt = 0;
+            pongTimeoutTask = null;
+            if (!isConnected()) {
+                pingFailures = 0;
+                return;
+            }
+            pingFailures++;
+            if (pingFailures > pingRetries) {
+                pingFailures = 0;
+                kbcClient.getCore().getLogger().warn("PING failed. Attempting to reconnect.");
+                requestReconnect(); // we will try to RESUME first
+                return;
+            }
+            kbcClient.getCore().getLogger().warn("PING timed out. Retrying. ({}/{})", pingFailures, pingRetries);
+            ping();
         }
+    }
 
-        private void sleep(int sec) throws InterruptedException {
-            Thread.sleep(TimeUnit.SECONDS.toMillis(sec));
-            if (!kbcClient.isRunning()) throw new InterruptedException();
+    public void pong() {
+        synchronized (heartbeatLock) {
+            if (pingSentAt == 0) {
+                return; // we are not waiting for it
+            }
+            rttStats.record(System.nanoTime() - pingSentAt);
+            pingSentAt = 0;
+            pingFailures = 0;
+            if (pongTimeoutTask != null) {
+                pongTimeoutTask.cancel(false);
+                pongTimeoutTask = null;
+            }
         }
     }
+
+    private void resetHeartbeat() {
+        synchronized (heartbeatLock) {
+            pingSentAt = 0;
+            pingFailures = 0;
+            if (pongTimeoutTask != null) {
+                pongTimeoutTask.cancel(false);
+                pongTimeoutTask = null;
+            }
+        }
+    }
+
+    // Wait for PONG a few times longer than the slow round trips we have seen recently.
+    // Use the maximum before we got enough samples.
+    private long getPongTimeout() {
+        final long p99 = rttStats.getP99();
+        if (p99 < 0) {
+            return pongTimeoutMax;
+        }
+        return Math.min(pongTimeoutMax, Math.max(pongTimeoutMin, p99 * 4));
+    }
+
+    public RttStats getRttStats() {
+        return rttStats;
+    }
+
+    // If we are connected, a reconnect will be scheduled.
+    // If we are connecting, the current attempt will be treated as failed.
+    public void requestReconnect() {
+        stateLock.lock();
+        try {
+            switch (state) {
+                case CONNECTED:
+                    setState(ConnectionState.RECONNECTING);
+                    NetworkScheduler.worker().execute(this::reconnect);
+                    break;
+                case CONNECTING:
+                case HELLO_WAIT:
+                    attemptFailed = true;
+                    stateChanged.signalAll();
+                    break;
+                default:
+                    // DISCONNECTED: we are shutting down; RECONNECTING: already requested
+                    break;
+            }
+        } finally {
+            unlockState();
+        }
+    }
+
+    public FrameHandler getListener() {
+        return listener;
+    }
+
+    public KBCClient getParent() {
+        return kbcClient;
+    }
+
+    public boolean isConnected() {
+        return state == ConnectionState.CONNECTED;
+    }
 }
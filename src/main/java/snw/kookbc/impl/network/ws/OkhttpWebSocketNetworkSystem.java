@@ -21,9 +21,14 @@ package snw.kookbc.impl.network.ws;
 import snw.kookbc.impl.KBCClient;
 import snw.kookbc.interfaces.network.ws.WebSocketNetworkSystem;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 public class OkhttpWebSocketNetworkSystem implements WebSocketNetworkSystem {
     protected final KBCClient client;
     protected Connector connector;
+    // the listeners registered before the connector is created
+    private final List<ConnectionStateListener> stateListeners = new CopyOnWriteArrayList<>();
 
     public OkhttpWebSocketNetworkSystem(KBCClient client) {
         this.client = client;
@@ -35,6 +40,9 @@ public class OkhttpWebSocketNetworkSystem implements WebSocketNetworkSystem {
             return;
         }
         this.connector = new Connector(client);
+        for (ConnectionStateListener listener : stateListeners) {
+            this.connector.addStateListener(listener);
+        }
         this.connector.start();
     }
 
@@ -53,4 +61,45 @@ public class OkhttpWebSocketNetworkSystem implements WebSocketNetworkSystem {
     public boolean isConnected() {
         return connector != null && connector.isConnected();
     }
+
+    // PING/PONG round-trip time in milliseconds, -1 if unknown
+    public long getLastRtt() {
+        return connector != null ? connector.getRttStats().getLast() : -1;
+    }
+
+    public long getAverageRtt() {
+        return connector != null ? connector.getRttStats().getAverage() : -1;
+    }
+
+    public long getP99Rtt() {
+        return connector != null ? connector.getRttStats().getP99() : -1;
+    }
+
+    // The frames ignored in ignore-sn-order mode, because their SN has been processed (see SNWindow)
+    public long getDuplicateFrames() {
+        return client.getSession().getProcessedSN().getDuplicates();
+    }
+
+    // The frames ignored in ignore-sn-order mode, because their SN is too old to know whether it has been processed
+    public long getTooOldFrames() {
+        return client.getSession().getProcessedSN().getTooOld();
+    }
+
+    public ConnectionState getState() {
+        return connector != null ? connector.getState() : ConnectionState.DISCONNECTED;
+    }
+
+    public void addStateListener(ConnectionStateListener listener) {
+        stateListeners.add(listener);
+        if (connector != null) {
+            connector.addStateListener(listener);
+        }
+    }
+
+    public void removeStateListener(ConnectionStateListener listener) {
+        stateListeners.remove(listener);
+        if (connector != null) {
+            connector.removeStateListener(listener);
+        }
+    }
 }
@@ -0,0 +1,90 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network.ws;
+
+import okio.ByteString;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Inflates the compressed frames of ONE WebSocket connection.
+// The Inflater and both buffers are reused between frames, so inflating a frame costs no allocation
+//  once the buffers have grown to the size of the largest frame seen on this connection.
+// OkHttp delivers the messages of a WebSocket on a single reader thread,
+//  but the failure callback may come from another thread, so inflate and close are synchronized.
+public class PooledInflater {
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    // don't keep huge buffers forever just because of one huge frame (e.g. a big card message)
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private final Inflater inflater = new Inflater();
+    private byte[] input = new byte[INITIAL_BUFFER_SIZE];
+    private byte[] output = new byte[INITIAL_BUFFER_SIZE];
+    private int length;
+    private boolean closed;
+
+    // Inflate the provided bytes into the internal buffer, then return the length of inflated data.
+    // The data is available until the next call of this method.
+    public synchronized int inflate(ByteString bytes) throws DataFormatException {
+        if (closed) {
+            throw new IllegalStateException("This inflater has been closed");
+        }
+        final int size = bytes.size();
+        if (input.length < size || input.length > MAX_RETAINED_BUFFER_SIZE) {
+            input = new byte[Math.max(size, INITIAL_BUFFER_SIZE)];
+        }
+        if (output.length > MAX_RETAINED_BUFFER_SIZE) {
+            output = new byte[INITIAL_BUFFER_SIZE];
+        }
+        bytes.copyInto(0, input, 0, size); // the only copy of the compressed data
+
+        inflater.reset();
+        inflater.setInput(input, 0, size);
+        int len = 0;
+        while (!inflater.finished()) {
+            if (len == output.length) {
+                output = Arrays.copyOf(output, output.length << 1);
+            }
+            int i = inflater.inflate(output, len, output.length - len);
+            if (i == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                throw new DataFormatException("Unexpected end of compressed data");
+            }
+            len += i;
+        }
+        this.length = len;
+        return len;
+    }
+
+    // The internal buffer. Only the first getLength() bytes are valid.
+    public byte[] getBuffer() {
+        return output;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.network.ws;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Round-trip time statistics of PING/PONG.
+// Only the latest samples are kept, so the statistics follow the current quality of the link.
+// All the values are in milliseconds, and -1 if there is no sample yet.
+public class RttStats {
+    private final long[] samples; // in nanoseconds, ring buffer
+    private int next;
+    private int count;
+    private long total;
+    private long last = -1;
+
+    public RttStats(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long rttNanos) {
+        if (count == samples.length) {
+            total -= samples[next];
+        } else {
+            count++;
+        }
+        samples[next] = rttNanos;
+        next = (next + 1) % samples.length;
+        total += rttNanos;
+        last = rttNanos;
+    }
+
+    public synchronized long getLast() {
+        return last < 0 ? -1 : toMillis(last);
+    }
+
+    public synchronized long getAverage() {
+        return count == 0 ? -1 : toMillis(total / count);
+    }
+
+    public synchronized long getP99() {
+        if (count == 0) {
+            return -1;
+        }
+        final long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        final int index = (int) Math.ceil(count * 0.99) - 1;
+        return toMillis(sorted[Math.max(0, index)]);
+    }
+
+    public synchronized int getSampleCount() {
+        return count;
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return "RttStats{" +
+                "last=" + getLast() +
+                ", avg=" + getAverage() +
+                ", p99=" + getP99() +
+                ", samples=" + getSampleCount() +
+                '}';
+    }
+}
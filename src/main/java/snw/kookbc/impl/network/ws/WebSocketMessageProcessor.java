@@ -18,8 +18,6 @@
 
 package snw.kookbc.impl.network.ws;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import okhttp3.Response;
 import okhttp3.WebSocket;
 import okhttp3.WebSocketListener;
@@ -27,64 +25,76 @@ import okio.ByteString;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import snw.kookbc.impl.KBCClient;
-import snw.kookbc.impl.network.Frame;
-import snw.kookbc.impl.network.ListenerFactory;
+import snw.kookbc.impl.network.RawFrame;
 import snw.kookbc.interfaces.network.FrameHandler;
 
-import java.io.IOException;
 import java.net.ProtocolException;
+import java.util.Arrays;
 import java.util.zip.DataFormatException;
 
-import static snw.kookbc.util.GsonUtil.get;
-import static snw.kookbc.util.GsonUtil.has;
-import static snw.kookbc.util.Util.decompressDeflate;
-
 public class WebSocketMessageProcessor extends WebSocketListener {
     private final KBCClient client;
     private final Connector connector;
     private final FrameHandler listener;
+    private final PooledInflater inflater = new PooledInflater(); // one per connection
 
-    @SuppressWarnings("deprecation")
     public WebSocketMessageProcessor(KBCClient client, Connector connector) {
         this.client = client;
         this.connector = connector;
-        this.listener = ListenerFactory.getListener(client, connector)::executeEvent;
+        this.listener = connector.getListener();
     }
 
     @Override
     public void onOpen(@NotNull WebSocket webSocket, @NotNull Response response) {
         super.onOpen(webSocket, response);
         Thread.currentThread().setName("Network Thread");
+        connector.opened(this);
     }
 
     // for non-compressed messages
     @Override
     public void onMessage(@NotNull WebSocket webSocket, @NotNull String text) {
         super.onMessage(webSocket, text);
-        JsonObject object = JsonParser.parseString(text).getAsJsonObject();
-        Frame frame = new Frame(get(object, "s").getAsInt(), has(object, "sn") ? get(object, "sn").getAsInt() : -1, object.getAsJsonObject("d"));
-        listener.executeEvent(frame);
+        if (!connector.isCurrent(this)) {
+            return; // from the closed connection
+        }
+        listener.executeEvent(RawFrame.of(text));
     }
 
     // for compressed messages, so we will extract it before processing
     @Override
     public void onMessage(@NotNull WebSocket webSocket, @NotNull ByteString bytes) {
         super.onMessage(webSocket, bytes);
-        String res;
+        if (!connector.isCurrent(this)) {
+            return; // from the closed connection
+        }
         try {
-            res = new String(decompressDeflate(bytes.toByteArray()));
-        } catch (DataFormatException | IOException e) {
+            inflater.inflate(bytes);
+        } catch (DataFormatException e) {
             client.getCore().getLogger().error("Unable to decompress data", e);
             return;
         }
-        JsonObject object = JsonParser.parseString(res).getAsJsonObject();
-        Frame frame = new Frame(get(object, "s").getAsInt(), has(object, "sn") ? get(object, "sn").getAsInt() : -1, object.getAsJsonObject("d"));
-        listener.executeEvent(frame);
+        // the frame owns its copy, the buffer of the inflater will be reused by the next frame
+        listener.executeEvent(RawFrame.of(Arrays.copyOf(inflater.getBuffer(), inflater.getLength())));
+    }
+
+    @Override
+    public void onClosed(@NotNull WebSocket webSocket, int code, @NotNull String reason) {
+        super.onClosed(webSocket, code, reason);
+        inflater.close();
+        if (connector.isCurrent(this)) { // closed by remote
+            connector.getParent().getCore().getLogger().warn("WebSocket connection closed by remote. Code: {}, Reason: {}", code, reason);
+            connector.requestReconnect();
+        }
     }
 
     @Override
     public void onFailure(@NotNull WebSocket webSocket, @NotNull Throwable t, @Nullable Response response) {
         super.onFailure(webSocket, t, response);
+        inflater.close();
+        if (!connector.isCurrent(this)) {
+            return; // we have given up this connection
+        }
         if (!(t instanceof ProtocolException)) {
             connector.getParent().getCore().getLogger().error("Unexpected failure occurred in the Network module. We will restart the Network module.");
             connector.getParent().getCore().getLogger().error("Response is following: {}", response);
@@ -52,16 +52,7 @@ public class CardComponentSerializer implements JsonSerializer<CardComponent>, J
 
     @Override
     public JsonElement serialize(CardComponent component, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject object = new JsonObject();
-        object.addProperty("type", "card");
-        object.addProperty("theme", component.getTheme().getValue());
-        object.addProperty("size", component.getSize().getValue());
-        if (component.getColor() != null && component.getColor().isEmpty()) {
-            object.addProperty("color", component.getColor());
-        }
-        JsonArray modules = context.serialize(component.getModules()).getAsJsonArray();
-        object.add("modules", modules);
-        return object;
+        return CardWriter.toJsonTree(component);
     }
 
     @Override
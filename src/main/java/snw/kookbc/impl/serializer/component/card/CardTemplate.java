@@ -0,0 +1,125 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.serializer.component.card;
+
+import com.google.gson.stream.JsonWriter;
+import snw.jkook.message.component.BaseComponent;
+import snw.jkook.util.Validate;
+import snw.kookbc.impl.network.JsonEscapingWriter;
+import snw.kookbc.impl.network.JsonStringContent;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// A card that is serialized once, then sent many times with different values.
+// Build the card as usual, but use slot(name) where a value should be, e.g.
+//   new HeaderModule(CardTemplate.slot("title"))
+// Slots can only be a part of the strings in the card (content, button values, URLs, etc.)
+// render() splices the escaped values into the pre-serialized JSON,
+//  so sending a card from a template costs no tree building or card encoding.
+public final class CardTemplate {
+    private static final Pattern SLOT = Pattern.compile("\\{\\{([A-Za-z0-9_.\\-]+)}}");
+    private final String[] literals; // literals[i] is before slots[i], the last one is after all slots
+    private final String[] slots;
+    private final int literalLength;
+
+    private CardTemplate(String[] literals, String[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static String slot(String name) {
+        Validate.isTrue(SLOT.matcher("{{" + name + "}}").matches(), "Invalid slot name: " + name);
+        return "{{" + name + "}}";
+    }
+
+    // The provided component must be CardComponent or MultipleCardComponent.
+    public static CardTemplate compile(BaseComponent card) {
+        final String json = CardWriter.toJson(card);
+        final List<String> literals = new ArrayList<>();
+        final List<String> slots = new ArrayList<>();
+        final Matcher matcher = SLOT.matcher(json);
+        int last = 0;
+        while (matcher.find()) {
+            literals.add(json.substring(last, matcher.start()));
+            slots.add(matcher.group(1));
+            last = matcher.end();
+        }
+        literals.add(json.substring(last));
+        return new CardTemplate(literals.toArray(new String[0]), slots.toArray(new String[0]));
+    }
+
+    public Set<String> getSlots() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(slots)));
+    }
+
+    // Return the JSON of the card with the provided values, the values are converted by String.valueOf.
+    // Every slot in the template must have a value.
+    public String render(Map<String, ?> values) {
+        final StringWriter out = new StringWriter(literalLength + 16 * slots.length);
+        final JsonEscapingWriter escaped = new JsonEscapingWriter(out);
+        try {
+            for (int i = 0; i < slots.length; i++) {
+                out.write(literals[i]);
+                final Object value = values.get(slots[i]);
+                if (value == null && !values.containsKey(slots[i])) {
+                    throw new IllegalArgumentException("No value for slot: " + slots[i]);
+                }
+                escaped.write(String.valueOf(value));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // impossible, StringWriter never throws it
+        }
+        out.write(literals[slots.length]);
+        return out.toString();
+    }
+
+    // Same as render(Map), but the result can be used as the content of card messages in request body.
+    // (see MessageBuilder#serializeContent)
+    public JsonStringContent renderContent(Map<String, ?> values) {
+        return new Rendered(render(values));
+    }
+
+    private static final class Rendered implements JsonStringContent {
+        private final String json;
+
+        private Rendered(String json) {
+            this.json = json;
+        }
+
+        @Override
+        public void write(JsonWriter writer) throws IOException {
+            writer.jsonValue(json);
+        }
+
+        @Override
+        public String toString() {
+            return json;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.serializer.component.card;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import snw.jkook.entity.abilities.Accessory;
+import snw.jkook.message.component.BaseComponent;
+import snw.jkook.message.component.FileComponent;
+import snw.jkook.message.component.card.CardComponent;
+import snw.jkook.message.component.card.MultipleCardComponent;
+import snw.jkook.message.component.card.element.*;
+import snw.jkook.message.component.card.module.*;
+import snw.jkook.message.component.card.structure.Paragraph;
+import snw.jkook.util.Validate;
+import snw.kookbc.SharedConstants;
+import snw.kookbc.impl.network.JsonStringContent;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+
+import static snw.kookbc.util.GsonUtil.CARD_GSON;
+
+// Writes the card messages straight to a JsonWriter, without building the JSON tree first.
+// This is the only implementation of the card JSON, the serializers in this package build their trees with it,
+//  see toJsonTree. CARD_GSON is still used for the types unknown to this class.
+public final class CardWriter {
+    // The card components are immutable, so the JSON of a card instance never changes.
+    // The cards that are sent again (e.g. fixed menus kept in a field) are serialized only once:
+    //  the first time a card is seen it is only remembered, the JSON is cached when it is sent again.
+    // So the cards that are sent only once are still streamed without building a string.
+    // Weak keys are compared by identity.
+    private static final Object SEEN = new Object();
+    private static final Cache<BaseComponent, Object> SERIALIZED = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(512)
+            .build();
+
+    // Builds the JSON tree of the card types known to this class, used by the serializers of CARD_GSON.
+    private static final TypeAdapter<Object> TREE_ADAPTER = new TypeAdapter<Object>() {
+        @Override
+        public void write(JsonWriter out, Object value) throws IOException {
+            writeComponent(out, value);
+        }
+
+        @Override
+        public Object read(JsonReader in) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private CardWriter() {
+    }
+
+    public static JsonElement toJsonTree(Object value) {
+        return TREE_ADAPTER.toJsonTree(value);
+    }
+
+    public static String toJson(BaseComponent component) {
+        final String cached = getCachedJson(component);
+        return cached != null ? cached : writeToString(component);
+    }
+
+    // Return the cached JSON of the provided card, or null if it should be written directly.
+    private static String getCachedJson(BaseComponent component) {
+        final Object cached = SERIALIZED.getIfPresent(component);
+        if (cached instanceof String) {
+            return (String) cached;
+        }
+        if (cached == null) {
+            SERIALIZED.put(component, SEEN);
+            return null;
+        }
+        final String json = writeToString(component);
+        SERIALIZED.put(component, json);
+        return json;
+    }
+
+    private static String writeToString(BaseComponent component) {
+        final StringWriter out = new StringWriter(512);
+        try {
+            write(newWriter(out), component);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // impossible, StringWriter never throws it
+        }
+        return out.toString();
+    }
+
+    // The content of card messages in the request body, see NetworkClient.
+    public static JsonStringContent asContent(BaseComponent component) {
+        Validate.isTrue(component instanceof CardComponent || component instanceof MultipleCardComponent,
+                "The provided component is not a card.");
+        return new CardContent(component);
+    }
+
+    public static JsonWriter newWriter(StringWriter out) {
+        final JsonWriter writer = new JsonWriter(out);
+        writer.setSerializeNulls(false); // same as CARD_GSON
+        return writer;
+    }
+
+    // Card messages are always sent as an array, even if there is only one card.
+    public static void write(JsonWriter writer, BaseComponent component) throws IOException {
+        writer.beginArray();
+        if (component instanceof CardComponent) {
+            writeCard(writer, (CardComponent) component);
+        } else if (component instanceof MultipleCardComponent) {
+            for (CardComponent card : ((MultipleCardComponent) component).getComponents()) {
+                writeCard(writer, card);
+            }
+        } else {
+            throw new IllegalArgumentException("The provided component is not a card.");
+        }
+        writer.endArray();
+    }
+
+    // Same as write, but a single card is not wrapped into an array.
+    public static void writeComponent(JsonWriter writer, Object value) throws IOException {
+        if (value instanceof CardComponent) {
+            writeCard(writer, (CardComponent) value);
+        } else if (value instanceof MultipleCardComponent) {
+            write(writer, (MultipleCardComponent) value);
+        } else if (value instanceof BaseModule) {
+            writeModule(writer, (BaseModule) value);
+        } else {
+            writeElement(writer, value);
+        }
+    }
+
+    public static void writeCard(JsonWriter writer, CardComponent card) throws IOException {
+        writer.beginObject();
+        writer.name("type").value("card");
+        writer.name("theme").value(card.getTheme().getValue());
+        writer.name("size").value(card.getSize().getValue());
+        if (card.getColor() != null && !card.getColor().isEmpty()) {
+            writer.name("color").value(card.getColor());
+        }
+        writer.name("modules").beginArray();
+        for (BaseModule module : card.getModules()) {
+            writeModule(writer, module);
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    public static void writeModule(JsonWriter writer, BaseModule module) throws IOException {
+        if (module instanceof SectionModule) {
+            final SectionModule section = (SectionModule) module;
+            writer.beginObject();
+            writer.name("type").value("section");
+            writer.name("text");
+            writeElement(writer, section.getText());
+            final Accessory.Mode mode = section.getMode();
+            if (mode != null) {
+                writer.name("mode").value(mode.getValue());
+            }
+            if (section.getAccessory() != null) {
+                writer.name("accessory");
+                writeElement(writer, section.getAccessory());
+            }
+            writer.endObject();
+        } else if (module instanceof HeaderModule) {
+            writer.beginObject();
+            writer.name("type").value("header");
+            writer.name("text").beginObject();
+            writer.name("type").value("plain-text");
+            writer.name("content").value(((HeaderModule) module).getElement().getContent());
+            writer.endObject();
+            writer.endObject();
+        } else if (module instanceof DividerModule) {
+            writer.beginObject();
+            writer.name("type").value("divider");
+            writer.endObject();
+        } else if (module instanceof ContextModule) {
+            writer.beginObject();
+            writer.name("type").value("context");
+            writer.name("elements").beginArray();
+            for (BaseElement element : ((ContextModule) module).getModules()) {
+                if (!(element instanceof PlainTextElement || element instanceof MarkdownElement || element instanceof ImageElement)) {
+                    throw new IllegalArgumentException("Invalid element in context module");
+                }
+                writeElement(writer, element);
+            }
+            writer.endArray();
+            writer.endObject();
+        } else if (module instanceof ActionGroupModule) {
+            final ActionGroupModule actionGroup = (ActionGroupModule) module;
+            Validate.isTrue(
+                    actionGroup.getButtons().stream().allMatch(button -> button instanceof ButtonElement),
+                    "If this has error, please tell the author of " + SharedConstants.SPEC_NAME + "! Maybe Kook updated the action module?"
+            );
+            writeElements(writer, "action-group", actionGroup.getButtons());
+        } else if (module instanceof ImageGroupModule) {
+            writeElements(writer, "image-group", ((ImageGroupModule) module).getImages());
+        } else if (module instanceof ContainerModule) {
+            writeElements(writer, "container", ((ContainerModule) module).getImages());
+        } else if (module instanceof FileModule) {
+            final FileModule file = (FileModule) module;
+            writer.beginObject();
+            writer.name("type").value(file.getType().getValue());
+            writer.name("title").value(file.getTitle());
+            writer.name("src").value(file.getSource());
+            if (file.getType() == FileComponent.Type.AUDIO) {
+                writer.name("cover").value(file.getCover());
+            }
+            writer.endObject();
+        } else if (module instanceof CountdownModule) {
+            final CountdownModule countdown = (CountdownModule) module;
+            writer.beginObject();
+            writer.name("type").value("countdown");
+            writer.name("mode").value(countdown.getType().getValue());
+            if (countdown.getType() == CountdownModule.Type.SECOND) {
+                writer.name("startTime").value(countdown.getStartTime());
+            }
+            writer.name("endTime").value(countdown.getEndTime());
+            writer.endObject();
+        } else if (module instanceof InviteModule) {
+            writer.beginObject();
+            writer.name("type").value("invite");
+            writer.name("code").value(((InviteModule) module).getCode());
+            writer.endObject();
+        } else {
+            writeUnknown(writer, module);
+        }
+    }
+
+    // Accepts the elements, the accessories and the paragraphs.
+    public static void writeElement(JsonWriter writer, Object element) throws IOException {
+        if (element instanceof MarkdownElement) {
+            writeContent(writer, "kmarkdown", ((MarkdownElement) element).getContent());
+        } else if (element instanceof PlainTextElement) {
+            writeContent(writer, "plain-text", ((PlainTextElement) element).getContent());
+        } else if (element instanceof ImageElement) {
+            final ImageElement image = (ImageElement) element;
+            writer.beginObject();
+            writer.name("type").value("image");
+            writer.name("src").value(image.getSource());
+            writer.name("size").value(image.getSize().getValue());
+            writer.name("alt").value(image.getAlt());
+            writer.name("circle").value(image.isCircled());
+            writer.endObject();
+        } else if (element instanceof ButtonElement) {
+            final ButtonElement button = (ButtonElement) element;
+            writer.beginObject();
+            writer.name("type").value("button");
+            writer.name("theme").value(button.getTheme().getValue());
+            writer.name("text");
+            if (button.getText() != null) {
+                writeElement(writer, button.getText());
+            } else {
+                writer.value("");
+            }
+            final ButtonElement.EventType eventType = button.getEventType();
+            writer.name("click").value(eventType != null ? eventType.getValue() : "");
+            writer.name("value").value(button.getValue() != null ? button.getValue() : "");
+            writer.endObject();
+        } else if (element instanceof Paragraph) {
+            final Paragraph paragraph = (Paragraph) element;
+            writer.beginObject();
+            writer.name("type").value("paragraph");
+            writer.name("cols").value(paragraph.getColumns());
+            writer.name("fields").beginArray();
+            for (BaseElement field : paragraph.getFields()) {
+                writeElement(writer, field);
+            }
+            writer.endArray();
+            writer.endObject();
+        } else if (element == null) {
+            writer.nullValue();
+        } else {
+            writeUnknown(writer, element);
+        }
+    }
+
+    private static void writeElements(JsonWriter writer, String type, Collection<?> elements) throws IOException {
+        writer.beginObject();
+        writer.name("type").value(type);
+        writer.name("elements").beginArray();
+        for (Object element : elements) {
+            writeElement(writer, element);
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    private static void writeContent(JsonWriter writer, String type, String content) throws IOException {
+        writer.beginObject();
+        writer.name("type").value(type);
+        writer.name("content").value(content);
+        writer.endObject();
+    }
+
+    // For the types that have a serializer in CARD_GSON but are not known to us.
+    private static void writeUnknown(JsonWriter writer, Object object) throws IOException {
+        CARD_GSON.toJson(object, object.getClass(), writer);
+    }
+
+    private static final class CardContent implements JsonStringContent {
+        private final BaseComponent component;
+
+        private CardContent(BaseComponent component) {
+            this.component = component;
+        }
+
+        @Override
+        public void write(JsonWriter writer) throws IOException {
+            final String cached = getCachedJson(component);
+            if (cached != null) {
+                writer.jsonValue(cached);
+            } else {
+                CardWriter.write(writer, component);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return toJson(component);
+        }
+    }
+}
@@ -30,7 +30,7 @@ public class MultipleCardComponentSerializer implements JsonSerializer<MultipleC
 
     @Override
     public JsonElement serialize(MultipleCardComponent src, Type typeOfSrc, JsonSerializationContext context) {
-        return context.serialize(src.getComponents());
+        return CardWriter.toJsonTree(src);
     }
 
     @Override
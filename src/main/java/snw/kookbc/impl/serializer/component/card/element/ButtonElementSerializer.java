@@ -24,6 +24,7 @@ import snw.jkook.message.component.card.element.BaseElement;
 import snw.jkook.message.component.card.element.ButtonElement;
 import snw.jkook.message.component.card.element.MarkdownElement;
 import snw.jkook.message.component.card.element.PlainTextElement;
+import snw.kookbc.impl.serializer.component.card.CardWriter;
 
 import java.lang.reflect.Type;
 
@@ -33,29 +34,7 @@ import static snw.kookbc.util.GsonUtil.has;
 public class ButtonElementSerializer implements JsonSerializer<ButtonElement>, JsonDeserializer<ButtonElement> {
     @Override
     public JsonElement serialize(ButtonElement element, Type typeOfSrc, JsonSerializationContext context) {
-        ButtonElement.EventType eventType = element.getEventType();
-        String value = element.getValue();
-        JsonObject accessoryJson = new JsonObject();
-        accessoryJson.addProperty("type", "button");
-        accessoryJson.addProperty("theme", element.getTheme().getValue());
-
-        BaseElement textModule = element.getText();
-        if (textModule != null) {
-            accessoryJson.add("text", context.serialize(textModule));
-        } else {
-            accessoryJson.addProperty("text", "");
-        }
-        if (eventType != null) {
-            accessoryJson.addProperty("click", eventType.getValue());
-        } else {
-            accessoryJson.addProperty("click", "");
-        }
-        if (value != null) {
-            accessoryJson.addProperty("value", value);
-        } else {
-            accessoryJson.addProperty("value", "");
-        }
-        return accessoryJson;
+        return CardWriter.toJsonTree(element);
     }
 
     @Override
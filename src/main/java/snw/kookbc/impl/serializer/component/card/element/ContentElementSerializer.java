@@ -19,6 +19,7 @@
 package snw.kookbc.impl.serializer.component.card.element;
 
 import com.google.gson.*;
+import snw.kookbc.impl.serializer.component.card.CardWriter;
 
 import java.lang.reflect.Type;
 import java.util.function.Function;
@@ -26,22 +27,15 @@ import java.util.function.Function;
 import static snw.kookbc.util.GsonUtil.get;
 
 public class ContentElementSerializer<T> implements JsonSerializer<T>, JsonDeserializer<T> {
-    private final String type;
-    private final Function<T, String> contentFunc;
     private final Function<String, T> parseFunc;
 
-    public ContentElementSerializer(String type, Function<T, String> contentFunc, Function<String, T> parseFunc) {
-        this.type = type;
-        this.contentFunc = contentFunc;
+    public ContentElementSerializer(Function<String, T> parseFunc) {
         this.parseFunc = parseFunc;
     }
 
     @Override
     public JsonElement serialize(T element, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject rawText = new JsonObject();
-        rawText.addProperty("type", type);
-        rawText.addProperty("content", contentFunc.apply(element));
-        return rawText;
+        return CardWriter.toJsonTree(element);
     }
 
     @Override
@@ -21,6 +21,7 @@ package snw.kookbc.impl.serializer.component.card.element;
 import com.google.gson.*;
 import snw.jkook.message.component.card.Size;
 import snw.jkook.message.component.card.element.ImageElement;
+import snw.kookbc.impl.serializer.component.card.CardWriter;
 
 import java.lang.reflect.Type;
 
@@ -30,13 +31,7 @@ import static snw.kookbc.util.GsonUtil.has;
 public class ImageElementSerializer implements JsonSerializer<ImageElement>, JsonDeserializer<ImageElement> {
     @Override
     public JsonElement serialize(ImageElement element, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject accessoryJson = new JsonObject();
-        accessoryJson.addProperty("type", "image");
-        accessoryJson.addProperty("src", element.getSource());
-        accessoryJson.addProperty("size", element.getSize().getValue());
-        accessoryJson.addProperty("alt", element.getAlt());
-        accessoryJson.addProperty("circle", element.isCircled());
-        return accessoryJson;
+        return CardWriter.toJsonTree(element);
     }
 
     @Override
@@ -22,8 +22,7 @@ import com.google.gson.*;
 import snw.jkook.message.component.card.element.ButtonElement;
 import snw.jkook.message.component.card.element.InteractElement;
 import snw.jkook.message.component.card.module.ActionGroupModule;
-import snw.jkook.util.Validate;
-import snw.kookbc.SharedConstants;
+import snw.kookbc.impl.serializer.component.card.CardWriter;
 
 import java.lang.reflect.Type;
 import java.util.List;
@@ -35,14 +34,7 @@ public class ActionGroupModuleSerializer implements JsonSerializer<ActionGroupMo
 
     @Override
     public JsonElement serialize(ActionGroupModule module, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject moduleObj = new JsonObject();
-        Validate.isTrue(
-                module.getButtons().stream().allMatch(button -> button instanceof ButtonElement),
-                "If this has error, please tell the author of " + SharedConstants.SPEC_NAME + "! Maybe Kook updated the action module?"
-        );
-        moduleObj.addProperty("type", "action-group");
-        moduleObj.add("elements", context.serialize(module.getButtons()));
-        return moduleObj;
+        return CardWriter.toJsonTree(module);
     }
 
     @Override
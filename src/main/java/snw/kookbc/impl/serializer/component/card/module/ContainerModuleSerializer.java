@@ -21,6 +21,7 @@ package snw.kookbc.impl.serializer.component.card.module;
 import com.google.gson.*;
 import snw.jkook.message.component.card.element.ImageElement;
 import snw.jkook.message.component.card.module.ContainerModule;
+import snw.kookbc.impl.serializer.component.card.CardWriter;
 
 import java.lang.reflect.Type;
 import java.util.List;
@@ -32,12 +33,7 @@ public class ContainerModuleSerializer implements JsonSerializer<ContainerModule
 
     @Override
     public JsonElement serialize(ContainerModule module, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject moduleObj = new JsonObject();
-        // This will include the size attribute
-        JsonElement elements = context.serialize(module.getImages());
-        moduleObj.addProperty("type", "container");
-        moduleObj.add("elements", elements);
-        return moduleObj;
+        return CardWriter.toJsonTree(module);
     }
 
     @Override
@@ -24,6 +24,7 @@ import snw.jkook.message.component.card.element.ImageElement;
 import snw.jkook.message.component.card.element.MarkdownElement;
 import snw.jkook.message.component.card.element.PlainTextElement;
 import snw.jkook.message.component.card.module.ContextModule;
+import snw.kookbc.impl.serializer.component.card.CardWriter;
 
 import java.lang.reflect.Type;
 import java.util.ArrayList;
@@ -32,19 +33,7 @@ import java.util.List;
 public class ContextModuleSerializer implements JsonSerializer<ContextModule>, JsonDeserializer<ContextModule> {
     @Override
     public JsonElement serialize(ContextModule module, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject moduleObj = new JsonObject();
-        JsonArray elements = new JsonArray();
-        for (BaseElement base : module.getModules()) {
-            if (base instanceof PlainTextElement || base instanceof MarkdownElement || base instanceof ImageElement) {
-                JsonElement raw = context.serialize(base);
-                elements.add(raw);
-            } else {
-                throw new IllegalArgumentException("Invalid element in context module");
-            }
-        }
-        moduleObj.addProperty("type", "context");
-        moduleObj.add("elements", elements);
-        return moduleObj;
+        return CardWriter.toJsonTree(module);
     }
 
     @Override
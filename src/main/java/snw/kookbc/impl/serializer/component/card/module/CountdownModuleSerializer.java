@@ -20,6 +20,7 @@ package snw.kookbc.impl.serializer.component.card.module;
 
 import com.google.gson.*;
 import snw.jkook.message.component.card.module.CountdownModule;
+import snw.kookbc.impl.serializer.component.card.CardWriter;
 
 import java.lang.reflect.Type;
 
@@ -28,14 +29,7 @@ import static snw.kookbc.util.GsonUtil.get;
 public class CountdownModuleSerializer implements JsonSerializer<CountdownModule>, JsonDeserializer<CountdownModule> {
     @Override
     public JsonElement serialize(CountdownModule module, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject moduleObj = new JsonObject();
-        moduleObj.addProperty("type", "countdown");
-        moduleObj.addProperty("mode", module.getType().getValue());
-        if (module.getType() == CountdownModule.Type.SECOND) {
-            moduleObj.addProperty("startTime", module.getStartTime());
-        }
-        moduleObj.addProperty("endTime", module.getEndTime());
-        return moduleObj;
+        return CardWriter.toJsonTree(module);
     }
 
     @Override
@@ -20,6 +20,7 @@ package snw.kookbc.impl.serializer.component.card.module;
 
 import com.google.gson.*;
 import snw.jkook.message.component.card.module.DividerModule;
+import snw.kookbc.impl.serializer.component.card.CardWriter;
 
 import java.lang.reflect.Type;
 
@@ -29,9 +30,7 @@ import static snw.kookbc.util.GsonUtil.has;
 public class DividerModuleSerializer implements JsonSerializer<DividerModule>, JsonDeserializer<DividerModule> {
     @Override
     public JsonElement serialize(DividerModule src, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject moduleObj = new JsonObject();
-        moduleObj.addProperty("type", "divider");
-        return moduleObj;
+        return CardWriter.toJsonTree(src);
     }
 
     @Override
@@ -21,6 +21,7 @@ package snw.kookbc.impl.serializer.component.card.module;
 import com.google.gson.*;
 import snw.jkook.message.component.FileComponent;
 import snw.jkook.message.component.card.module.FileModule;
+import snw.kookbc.impl.serializer.component.card.CardWriter;
 
 import java.lang.reflect.Type;
 
@@ -30,14 +31,7 @@ import static snw.kookbc.util.GsonUtil.has;
 public class FileModuleSerializer implements JsonSerializer<FileModule>, JsonDeserializer<FileModule> {
     @Override
     public JsonElement serialize(FileModule module, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject moduleObj = new JsonObject();
-        moduleObj.addProperty("type", module.getType().getValue());
-        moduleObj.addProperty("title", (module.getTitle()));
-        moduleObj.addProperty("src", module.getSource());
-        if (module.getType() == FileComponent.Type.AUDIO) {
-            moduleObj.addProperty("cover", module.getCover());
-        }
-        return moduleObj;
+        return CardWriter.toJsonTree(module);
     }
 
     @Override
@@ -21,19 +21,14 @@ package snw.kookbc.impl.serializer.component.card.module;
 import com.google.gson.*;
 import snw.jkook.message.component.card.element.PlainTextElement;
 import snw.jkook.message.component.card.module.HeaderModule;
+import snw.kookbc.impl.serializer.component.card.CardWriter;
 
 import java.lang.reflect.Type;
 
 public class HeaderModuleSerializer implements JsonSerializer<HeaderModule>, JsonDeserializer<HeaderModule> {
     @Override
     public JsonElement serialize(HeaderModule module, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject moduleObj = new JsonObject();
-        JsonObject textObj = new JsonObject();
-        textObj.addProperty("type", "plain-text");
-        textObj.addProperty("content", module.getElement().getContent());
-        moduleObj.addProperty("type", "header");
-        moduleObj.add("text", textObj);
-        return moduleObj;
+        return CardWriter.toJsonTree(module);
     }
 
     @Override
@@ -20,6 +20,7 @@ package snw.kookbc.impl.serializer.component.card.module;
 
 import com.google.gson.*;
 import snw.jkook.message.component.card.module.ImageGroupModule;
+import snw.kookbc.impl.serializer.component.card.CardWriter;
 
 import java.lang.reflect.Type;
 
@@ -28,11 +29,7 @@ import static snw.kookbc.impl.serializer.component.card.module.ContainerModuleSe
 public class ImageGroupModuleSerializer implements JsonSerializer<ImageGroupModule>, JsonDeserializer<ImageGroupModule> {
     @Override
     public JsonElement serialize(ImageGroupModule module, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject moduleObj = new JsonObject();
-        JsonElement elements = context.serialize(module.getImages());
-        moduleObj.addProperty("type", "image-group");
-        moduleObj.add("elements", elements);
-        return moduleObj;
+        return CardWriter.toJsonTree(module);
     }
 
     @Override
@@ -20,6 +20,7 @@ package snw.kookbc.impl.serializer.component.card.module;
 
 import com.google.gson.*;
 import snw.jkook.message.component.card.module.InviteModule;
+import snw.kookbc.impl.serializer.component.card.CardWriter;
 
 import java.lang.reflect.Type;
 
@@ -28,10 +29,7 @@ import static snw.kookbc.util.GsonUtil.get;
 public class InviteModuleSerializer implements JsonSerializer<InviteModule>, JsonDeserializer<InviteModule> {
     @Override
     public JsonElement serialize(InviteModule module, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject moduleObj = new JsonObject();
-        moduleObj.addProperty("type", "invite");
-        moduleObj.addProperty("code", module.getCode());
-        return moduleObj;
+        return CardWriter.toJsonTree(module);
     }
 
     @Override
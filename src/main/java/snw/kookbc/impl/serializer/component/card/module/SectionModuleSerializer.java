@@ -27,6 +27,7 @@ import snw.jkook.message.component.card.element.MarkdownElement;
 import snw.jkook.message.component.card.element.PlainTextElement;
 import snw.jkook.message.component.card.module.SectionModule;
 import snw.jkook.message.component.card.structure.Paragraph;
+import snw.kookbc.impl.serializer.component.card.CardWriter;
 
 import java.lang.reflect.Type;
 
@@ -36,18 +37,7 @@ import static snw.kookbc.util.GsonUtil.has;
 public class SectionModuleSerializer implements JsonSerializer<SectionModule>, JsonDeserializer<SectionModule> {
     @Override
     public JsonElement serialize(SectionModule sectionModule, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject moduleObj = new JsonObject();
-        JsonElement rawText = context.serialize(sectionModule.getText());
-        moduleObj.addProperty("type", "section");
-        moduleObj.add("text", rawText);
-        Accessory.Mode mode = sectionModule.getMode();
-        if (mode != null) {
-            moduleObj.addProperty("mode", mode.getValue());
-        }
-        if (sectionModule.getAccessory() != null) {
-            moduleObj.add("accessory", context.serialize(sectionModule.getAccessory()));
-        }
-        return moduleObj;
+        return CardWriter.toJsonTree(sectionModule);
     }
 
     @Override
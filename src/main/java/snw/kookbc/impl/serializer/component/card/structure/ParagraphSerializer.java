@@ -23,6 +23,7 @@ import snw.jkook.message.component.card.element.BaseElement;
 import snw.jkook.message.component.card.element.MarkdownElement;
 import snw.jkook.message.component.card.element.PlainTextElement;
 import snw.jkook.message.component.card.structure.Paragraph;
+import snw.kookbc.impl.serializer.component.card.CardWriter;
 
 import java.lang.reflect.Type;
 import java.util.ArrayList;
@@ -34,11 +35,7 @@ import static snw.kookbc.util.GsonUtil.has;
 public class ParagraphSerializer implements JsonSerializer<Paragraph>, JsonDeserializer<Paragraph> {
     @Override
     public JsonElement serialize(Paragraph element, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject rawText = new JsonObject();
-        rawText.addProperty("type", "paragraph");
-        rawText.addProperty("cols", element.getColumns());
-        rawText.add("fields", context.serialize(element.getFields()));
-        return rawText;
+        return CardWriter.toJsonTree(element);
     }
 
     @Override
@@ -0,0 +1,120 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.serializer.event;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import snw.kookbc.util.GsonUtil;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import static snw.kookbc.util.GsonUtil.get;
+
+// The "body" object of a normal event, read from either the JSON tree or the JSON stream.
+// When read from the stream, only the wanted fields are kept,
+//  primitive values are kept as strings, and object values are kept as (small) JSON trees.
+public final class EventBody {
+    private final JsonObject tree; // null if read from the stream
+    private final String[] names;
+    private final Object[] values;
+
+    private EventBody(JsonObject tree, String[] names, Object[] values) {
+        this.tree = tree;
+        this.names = names;
+        this.values = values;
+    }
+
+    public static EventBody of(JsonObject tree) {
+        return new EventBody(tree, null, null);
+    }
+
+    public static EventBody read(JsonReader reader, String[] wanted) throws IOException {
+        final Object[] values = new Object[wanted.length];
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final int index = indexOf(wanted, reader.nextName());
+            if (index == -1) {
+                reader.skipValue();
+                continue;
+            }
+            switch (reader.peek()) {
+                case BEGIN_OBJECT:
+                    values[index] = JsonParser.parseReader(reader).getAsJsonObject();
+                    break;
+                case STRING:
+                case NUMBER:
+                    values[index] = reader.nextString();
+                    break;
+                case BOOLEAN:
+                    values[index] = String.valueOf(reader.nextBoolean());
+                    break;
+                default: // null and arrays, treat as absent
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new EventBody(null, wanted, values);
+    }
+
+    public boolean has(String key) {
+        if (tree != null) {
+            return GsonUtil.has(tree, key);
+        }
+        return find(key) != null;
+    }
+
+    public String getString(String key) {
+        if (tree != null) {
+            return get(tree, key).getAsString();
+        }
+        final Object value = find(key);
+        if (!(value instanceof String)) {
+            throw new NoSuchElementException("There is no valid value mapped to requested key '" + key + "'.");
+        }
+        return (String) value;
+    }
+
+    public JsonObject getObject(String key) {
+        if (tree != null) {
+            return get(tree, key).getAsJsonObject();
+        }
+        final Object value = find(key);
+        if (!(value instanceof JsonObject)) {
+            throw new NoSuchElementException("There is no valid value mapped to requested key '" + key + "'.");
+        }
+        return (JsonObject) value;
+    }
+
+    private Object find(String key) {
+        final int index = indexOf(names, key);
+        return index == -1 ? null : values[index];
+    }
+
+    // linear search is faster than hashing for the few fields we have
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.serializer.event;
+
+import com.google.gson.stream.JsonReader;
+import snw.jkook.event.Event;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+// An event deserializer that can build the event from the JSON stream directly,
+//  so the JSON tree of the frame is never built.
+// It works in two steps: read() parses the fields it needs from the stream, without side effects,
+//  then the returned Supplier builds the event (and updates the storage, etc.).
+// The tree-based path (JsonDeserializer) is still used if the stream can't be parsed,
+//  but not if the event can't be built, the build step is never run twice.
+public interface StreamingEventDeserializer<T extends Event> {
+
+    // The reader is positioned at the "d" object of the frame.
+    // Throw an exception if the content is not expected, then the tree-based path will be used.
+    Supplier<T> read(JsonReader reader) throws IOException;
+}
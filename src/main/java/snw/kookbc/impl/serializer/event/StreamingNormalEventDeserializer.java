@@ -0,0 +1,95 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.serializer.event;
+
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import snw.jkook.event.Event;
+import snw.kookbc.impl.KBCClient;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+// A normal event deserializer that supports both the JSON tree and the JSON stream.
+// The subclasses should provide the names of the body fields they use,
+//  then build the event from the EventBody, which works the same way on both paths.
+public abstract class StreamingNormalEventDeserializer<T extends Event> extends NormalEventDeserializer<T> implements StreamingEventDeserializer<T> {
+    private final String[] bodyFields;
+
+    protected StreamingNormalEventDeserializer(KBCClient client, String... bodyFields) {
+        super(client);
+        this.bodyFields = bodyFields;
+    }
+
+    @Override
+    protected final T deserialize(JsonObject object, Type type, JsonDeserializationContext ctx, long timeStamp, JsonObject body) throws JsonParseException {
+        return deserialize(timeStamp, EventBody.of(body));
+    }
+
+    @Override
+    public final Supplier<T> read(JsonReader reader) throws IOException {
+        long timeStamp = -1;
+        EventBody body = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "msg_timestamp":
+                    timeStamp = reader.nextLong();
+                    break;
+                case "extra":
+                    body = readExtra(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (timeStamp == -1 || body == null) {
+            throw new NoSuchElementException("No timestamp or body in the event");
+        }
+        final long finalTimeStamp = timeStamp;
+        final EventBody finalBody = body;
+        return () -> {
+            final T t = deserialize(finalTimeStamp, finalBody);
+            beforeReturn(t);
+            return t;
+        };
+    }
+
+    private EventBody readExtra(JsonReader reader) throws IOException {
+        EventBody body = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("body".equals(reader.nextName())) {
+                body = EventBody.read(reader, bodyFields);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return body;
+    }
+
+    protected abstract T deserialize(long timeStamp, EventBody body) throws JsonParseException;
+
+}
@@ -40,7 +40,7 @@ public class ChannelDeleteEventDeserializer extends NormalEventDeserializer<Chan
         return new ChannelDeleteEvent(
                 timeStamp,
                 get(body, "id").getAsString(),
-                client.getStorage().getGuild(get(object, "target_id").getAsString())
+                client.getStorage().getLazyGuild(get(object, "target_id").getAsString())
         );
     }
 
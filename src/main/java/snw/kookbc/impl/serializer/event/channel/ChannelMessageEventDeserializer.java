@@ -21,14 +21,19 @@ package snw.kookbc.impl.serializer.event.channel;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 import snw.jkook.event.channel.ChannelMessageEvent;
 import snw.jkook.message.ChannelMessage;
 import snw.kookbc.impl.KBCClient;
+import snw.kookbc.impl.entity.builder.MessageBuilder;
 import snw.kookbc.impl.serializer.event.BaseEventDeserializer;
+import snw.kookbc.impl.serializer.event.StreamingEventDeserializer;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.function.Supplier;
 
-public class ChannelMessageEventDeserializer extends BaseEventDeserializer<ChannelMessageEvent> {
+public class ChannelMessageEventDeserializer extends BaseEventDeserializer<ChannelMessageEvent> implements StreamingEventDeserializer<ChannelMessageEvent> {
 
     public ChannelMessageEventDeserializer(KBCClient client) {
         super(client);
@@ -36,7 +41,20 @@ public class ChannelMessageEventDeserializer extends BaseEventDeserializer<Chann
 
     @Override
     protected ChannelMessageEvent deserialize(JsonObject object, Type type, JsonDeserializationContext ctx) throws JsonParseException {
-        ChannelMessage ChannelMessage = client.getMessageBuilder().buildChannelMessage(object);
+        return create(client.getMessageBuilder().buildChannelMessage(object));
+    }
+
+    @Override
+    public Supplier<ChannelMessageEvent> read(JsonReader reader) throws IOException {
+        final JsonObject message = MessageBuilder.readMessage(reader);
+        return () -> {
+            final ChannelMessageEvent event = create(client.getMessageBuilder().buildChannelMessage(message));
+            beforeReturn(event);
+            return event;
+        };
+    }
+
+    private ChannelMessageEvent create(ChannelMessage ChannelMessage) {
         return new ChannelMessageEvent(
                 ChannelMessage.getTimeStamp(),
                 ChannelMessage.getChannel(),
@@ -41,7 +41,7 @@ public class ChannelMessageUnpinEventDeserializer extends NormalEventDeserialize
                 timeStamp,
                 client.getStorage().getChannel(get(body, "channel_id").getAsString()),
                 get(body, "msg_id").getAsString(),
-                client.getStorage().getUser(get(body, "operator_id").getAsString())
+                client.getStorage().getLazyUser(get(body, "operator_id").getAsString())
         );
     }
 
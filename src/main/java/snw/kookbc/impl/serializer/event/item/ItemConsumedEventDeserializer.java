@@ -41,8 +41,8 @@ public class ItemConsumedEventDeserializer extends BaseEventDeserializer<ItemCon
     protected ItemConsumedEvent deserialize(JsonObject object, Type type, JsonDeserializationContext ctx) throws JsonParseException {
         long msgTimeStamp = get(object, "msg_timestamp").getAsLong();
         JsonObject content = parseString(get(object, "content").getAsString()).getAsJsonObject();
-        User consumer = client.getStorage().getUser(content.getAsJsonObject("data").get("user_id").getAsString());
-        User affected = client.getStorage().getUser(content.getAsJsonObject("data").get("target_id").getAsString());
+        User consumer = client.getStorage().getLazyUser(content.getAsJsonObject("data").get("user_id").getAsString());
+        User affected = client.getStorage().getLazyUser(content.getAsJsonObject("data").get("target_id").getAsString());
         int itemId = get(content, "data").getAsJsonObject().get("item_id").getAsInt();
         return new ItemConsumedEvent(msgTimeStamp, consumer, affected, itemId);
     }
@@ -21,14 +21,19 @@ package snw.kookbc.impl.serializer.event.pm;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 import snw.jkook.event.pm.PrivateMessageReceivedEvent;
 import snw.jkook.message.PrivateMessage;
 import snw.kookbc.impl.KBCClient;
+import snw.kookbc.impl.entity.builder.MessageBuilder;
 import snw.kookbc.impl.serializer.event.BaseEventDeserializer;
+import snw.kookbc.impl.serializer.event.StreamingEventDeserializer;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.function.Supplier;
 
-public class PrivateMessageReceivedEventDeserializer extends BaseEventDeserializer<PrivateMessageReceivedEvent> {
+public class PrivateMessageReceivedEventDeserializer extends BaseEventDeserializer<PrivateMessageReceivedEvent> implements StreamingEventDeserializer<PrivateMessageReceivedEvent> {
 
     public PrivateMessageReceivedEventDeserializer(KBCClient client) {
         super(client);
@@ -36,7 +41,20 @@ public class PrivateMessageReceivedEventDeserializer extends BaseEventDeserializ
 
     @Override
     protected PrivateMessageReceivedEvent deserialize(JsonObject object, Type type, JsonDeserializationContext ctx) throws JsonParseException {
-        PrivateMessage privateMessage = client.getMessageBuilder().buildPrivateMessage(object);
+        return create(client.getMessageBuilder().buildPrivateMessage(object));
+    }
+
+    @Override
+    public Supplier<PrivateMessageReceivedEvent> read(JsonReader reader) throws IOException {
+        final JsonObject message = MessageBuilder.readMessage(reader);
+        return () -> {
+            final PrivateMessageReceivedEvent event = create(client.getMessageBuilder().buildPrivateMessage(message));
+            beforeReturn(event);
+            return event;
+        };
+    }
+
+    private PrivateMessageReceivedEvent create(PrivateMessage privateMessage) {
         return new PrivateMessageReceivedEvent(
                 privateMessage.getTimeStamp(),
                 privateMessage.getSender(),
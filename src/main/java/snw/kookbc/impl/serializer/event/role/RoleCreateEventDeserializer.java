@@ -40,7 +40,7 @@ public class RoleCreateEventDeserializer extends NormalEventDeserializer<RoleCre
         return new RoleCreateEvent(
                 timeStamp,
                 client.getEntityBuilder().buildRole(
-                        client.getStorage().getGuild(get(object, "target_id").getAsString()),
+                        client.getStorage().getLazyGuild(get(object, "target_id").getAsString()),
                         body
                 )
         );
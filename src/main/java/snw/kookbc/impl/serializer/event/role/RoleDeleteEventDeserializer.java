@@ -38,7 +38,7 @@ public class RoleDeleteEventDeserializer extends NormalEventDeserializer<RoleDel
     @Override
     protected RoleDeleteEvent deserialize(JsonObject object, Type type, JsonDeserializationContext ctx, long timeStamp, JsonObject body) throws JsonParseException {
         Role role = client.getStorage().getRole(
-                client.getStorage().getGuild(get(object, "target_id").getAsString()),
+                client.getStorage().getLazyGuild(get(object, "target_id").getAsString()),
                 get(body, "role_id").getAsInt(),
                 body
         );
@@ -39,7 +39,7 @@ public class RoleInfoUpdateEventDeserializer extends NormalEventDeserializer<Rol
 
     @Override
     protected RoleInfoUpdateEvent deserialize(JsonObject object, Type type, JsonDeserializationContext ctx, long timeStamp, JsonObject body) throws JsonParseException {
-        Guild guild = client.getStorage().getGuild(get(object, "target_id").getAsString());
+        Guild guild = client.getStorage().getLazyGuild(get(object, "target_id").getAsString());
         int roleId = get(body, "role_id").getAsInt();
         ((RoleImpl) client.getStorage().getRole(guild, roleId, body)).update(body);
         return new RoleInfoUpdateEvent(
@@ -18,7 +18,6 @@
 
 package snw.kookbc.impl.serializer.event.user;
 
-import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import snw.jkook.entity.CustomEmoji;
@@ -26,23 +25,22 @@ import snw.jkook.entity.User;
 import snw.jkook.event.user.UserAddReactionEvent;
 import snw.kookbc.impl.KBCClient;
 import snw.kookbc.impl.entity.ReactionImpl;
-import snw.kookbc.impl.serializer.event.NormalEventDeserializer;
-
-import java.lang.reflect.Type;
+import snw.kookbc.impl.serializer.event.EventBody;
+import snw.kookbc.impl.serializer.event.StreamingNormalEventDeserializer;
 
 import static snw.kookbc.util.GsonUtil.get;
 
-public class UserAddReactionEventDeserializer extends NormalEventDeserializer<UserAddReactionEvent> {
+public class UserAddReactionEventDeserializer extends StreamingNormalEventDeserializer<UserAddReactionEvent> {
 
     public UserAddReactionEventDeserializer(KBCClient client) {
-        super(client);
+        super(client, "msg_id", "user_id", "emoji");
     }
 
     @Override
-    protected UserAddReactionEvent deserialize(JsonObject object, Type type, JsonDeserializationContext ctx, long timeStamp, JsonObject body) throws JsonParseException {
-        String messageId = get(body, "msg_id").getAsString();
-        User user = client.getStorage().getUser(get(body, "user_id").getAsString());
-        JsonObject rawEmoji = get(body, "emoji").getAsJsonObject();
+    protected UserAddReactionEvent deserialize(long timeStamp, EventBody body) throws JsonParseException {
+        String messageId = body.getString("msg_id");
+        User user = client.getStorage().getLazyUser(body.getString("user_id"));
+        JsonObject rawEmoji = body.getObject("emoji");
         CustomEmoji emoji = client.getStorage().getEmoji(get(rawEmoji, "id").getAsString(), rawEmoji);
         ReactionImpl reaction = new ReactionImpl(client, messageId, emoji, user, timeStamp);
         return new UserAddReactionEvent(
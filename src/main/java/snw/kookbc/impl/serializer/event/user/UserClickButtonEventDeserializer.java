@@ -18,38 +18,37 @@
 
 package snw.kookbc.impl.serializer.event.user;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
-import snw.jkook.entity.channel.NonCategoryChannel;
-import snw.jkook.entity.channel.TextChannel;
 import snw.jkook.event.user.UserClickButtonEvent;
 import snw.kookbc.impl.KBCClient;
-import snw.kookbc.impl.serializer.event.NormalEventDeserializer;
+import snw.kookbc.impl.serializer.event.EventBody;
+import snw.kookbc.impl.serializer.event.StreamingNormalEventDeserializer;
 
-import java.lang.reflect.Type;
 import java.util.Objects;
 
-import static snw.kookbc.util.GsonUtil.get;
-
-public class UserClickButtonEventDeserializer extends NormalEventDeserializer<UserClickButtonEvent> {
+public class UserClickButtonEventDeserializer extends StreamingNormalEventDeserializer<UserClickButtonEvent> {
 
     public UserClickButtonEventDeserializer(KBCClient client) {
-        super(client);
+        super(client, "user_id", "msg_id", "value", "target_id", "channel_type");
     }
 
     @Override
-    protected UserClickButtonEvent deserialize(JsonObject object, Type type, JsonDeserializationContext ctx, long timeStamp, JsonObject body) throws JsonParseException {
+    protected UserClickButtonEvent deserialize(long timeStamp, EventBody body) throws JsonParseException {
         return new UserClickButtonEvent(
                 timeStamp,
-                client.getStorage().getUser(get(body, "user_id").getAsString()),
-                get(body, "msg_id").getAsString(),
-                get(body, "value").getAsString(),
-                Objects.equals(
-                        get(body, "user_id").getAsString(),
-                        get(body, "target_id").getAsString()
-                ) ? null : (NonCategoryChannel) client.getStorage().getChannel(get(body, "target_id").getAsString())
+                client.getStorage().getLazyUser(body.getString("user_id")),
+                body.getString("msg_id"),
+                body.getString("value"),
+                isPrivate(body) ? null : client.getStorage().getLazyChannel(body.getString("target_id"))
         );
     }
 
+    private static boolean isPrivate(EventBody body) {
+        if (body.has("channel_type")) {
+            return "PERSON".equals(body.getString("channel_type"));
+        }
+        // the old payloads have no channel type, the target of a private message is the user
+        return Objects.equals(body.getString("user_id"), body.getString("target_id"));
+    }
+
 }
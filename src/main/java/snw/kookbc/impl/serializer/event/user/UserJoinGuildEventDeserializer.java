@@ -45,13 +45,13 @@ public class UserJoinGuildEventDeserializer extends NormalEventDeserializer<User
             user = client.getCore().getUser();
             guildId = get(body, "guild_id").getAsString();
         } else {
-            user = client.getStorage().getUser(get(body, "user_id").getAsString());
+            user = client.getStorage().getLazyUser(get(body, "user_id").getAsString());
             guildId = get(object, "target_id").getAsString();
         }
         return new UserJoinGuildEvent(
                 timeStamp,
                 user,
-                client.getStorage().getGuild(guildId)
+                client.getStorage().getLazyGuild(guildId)
         );
     }
 
@@ -46,7 +46,7 @@ public class UserLeaveGuildEventDeserializer extends NormalEventDeserializer<Use
             user = client.getCore().getUser();
             guildId = get(body, "guild_id").getAsString();
         } else {
-            user = client.getStorage().getUser(get(body, "user_id").getAsString());
+            user = client.getStorage().getLazyUser(get(body, "user_id").getAsString());
             guildId = get(object, "target_id").getAsString();
         }
         Guild guild = client.getStorage().getGuild(guildId);
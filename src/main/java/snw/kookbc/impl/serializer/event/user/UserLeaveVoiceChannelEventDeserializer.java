@@ -40,7 +40,7 @@ public class UserLeaveVoiceChannelEventDeserializer extends NormalEventDeseriali
     protected UserLeaveVoiceChannelEvent deserialize(JsonObject object, Type type, JsonDeserializationContext ctx, long timeStamp, JsonObject body) throws JsonParseException {
         return new UserLeaveVoiceChannelEvent(
                 timeStamp,
-                client.getStorage().getUser(get(body, "user_id").getAsString()),
+                client.getStorage().getLazyUser(get(body, "user_id").getAsString()),
                 (VoiceChannel) client.getStorage().getChannel(get(body, "channel_id").getAsString())
         );
     }
@@ -18,28 +18,23 @@
 
 package snw.kookbc.impl.serializer.event.user;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import snw.jkook.event.user.UserOfflineEvent;
 import snw.kookbc.impl.KBCClient;
-import snw.kookbc.impl.serializer.event.NormalEventDeserializer;
+import snw.kookbc.impl.serializer.event.EventBody;
+import snw.kookbc.impl.serializer.event.StreamingNormalEventDeserializer;
 
-import java.lang.reflect.Type;
-
-import static snw.kookbc.util.GsonUtil.get;
-
-public class UserOfflineEventDeserializer extends NormalEventDeserializer<UserOfflineEvent> {
+public class UserOfflineEventDeserializer extends StreamingNormalEventDeserializer<UserOfflineEvent> {
 
     public UserOfflineEventDeserializer(KBCClient client) {
-        super(client);
+        super(client, "user_id");
     }
 
     @Override
-    protected UserOfflineEvent deserialize(JsonObject object, Type type, JsonDeserializationContext ctx, long timeStamp, JsonObject body) throws JsonParseException {
+    protected UserOfflineEvent deserialize(long timeStamp, EventBody body) throws JsonParseException {
         return new UserOfflineEvent(
                 timeStamp,
-                client.getStorage().getUser(get(body, "user_id").getAsString())
+                client.getStorage().getLazyUser(body.getString("user_id"))
         );
     }
 
@@ -18,28 +18,23 @@
 
 package snw.kookbc.impl.serializer.event.user;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import snw.jkook.event.user.UserOnlineEvent;
 import snw.kookbc.impl.KBCClient;
-import snw.kookbc.impl.serializer.event.NormalEventDeserializer;
+import snw.kookbc.impl.serializer.event.EventBody;
+import snw.kookbc.impl.serializer.event.StreamingNormalEventDeserializer;
 
-import java.lang.reflect.Type;
-
-import static snw.kookbc.util.GsonUtil.get;
-
-public class UserOnlineEventDeserializer extends NormalEventDeserializer<UserOnlineEvent> {
+public class UserOnlineEventDeserializer extends StreamingNormalEventDeserializer<UserOnlineEvent> {
 
     public UserOnlineEventDeserializer(KBCClient client) {
-        super(client);
+        super(client, "user_id");
     }
 
     @Override
-    protected UserOnlineEvent deserialize(JsonObject object, Type type, JsonDeserializationContext ctx, long timeStamp, JsonObject body) throws JsonParseException {
+    protected UserOnlineEvent deserialize(long timeStamp, EventBody body) throws JsonParseException {
         return new UserOnlineEvent(
                 timeStamp,
-                client.getStorage().getUser(get(body, "user_id").getAsString())
+                client.getStorage().getLazyUser(body.getString("user_id"))
         );
     }
 
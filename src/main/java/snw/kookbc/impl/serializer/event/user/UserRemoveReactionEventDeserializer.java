@@ -18,7 +18,6 @@
 
 package snw.kookbc.impl.serializer.event.user;
 
-import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import snw.jkook.entity.CustomEmoji;
@@ -26,41 +25,40 @@ import snw.jkook.entity.Reaction;
 import snw.jkook.event.user.UserRemoveReactionEvent;
 import snw.kookbc.impl.KBCClient;
 import snw.kookbc.impl.entity.ReactionImpl;
-import snw.kookbc.impl.serializer.event.NormalEventDeserializer;
-
-import java.lang.reflect.Type;
+import snw.kookbc.impl.serializer.event.EventBody;
+import snw.kookbc.impl.serializer.event.StreamingNormalEventDeserializer;
 
 import static snw.kookbc.util.GsonUtil.get;
 
-public class UserRemoveReactionEventDeserializer extends NormalEventDeserializer<UserRemoveReactionEvent> {
+public class UserRemoveReactionEventDeserializer extends StreamingNormalEventDeserializer<UserRemoveReactionEvent> {
 
     public UserRemoveReactionEventDeserializer(KBCClient client) {
-        super(client);
+        super(client, "msg_id", "user_id", "emoji");
     }
 
     @Override
-    protected UserRemoveReactionEvent deserialize(JsonObject object, Type type, JsonDeserializationContext ctx, long timeStamp, JsonObject body) throws JsonParseException {
-        JsonObject emojiObject = get(body, "emoji").getAsJsonObject();
+    protected UserRemoveReactionEvent deserialize(long timeStamp, EventBody body) throws JsonParseException {
+        JsonObject emojiObject = body.getObject("emoji");
         CustomEmoji customEmoji = client.getStorage().getEmoji(get(emojiObject, "id").getAsString(), emojiObject);
         Reaction reaction = client.getStorage().getReaction(
-                get(body, "msg_id").getAsString(), customEmoji,
-                client.getStorage().getUser(get(body, "user_id").getAsString())
+                body.getString("msg_id"), customEmoji,
+                client.getStorage().getLazyUser(body.getString("user_id"))
         );
         if (reaction != null) {
             client.getStorage().removeReaction(reaction);
         } else {
             reaction = new ReactionImpl(
                     client,
-                    get(body, "msg.id").getAsString(),
+                    body.getString("msg_id"),
                     customEmoji,
-                    client.getStorage().getUser(get(body, "user_id").getAsString()),
+                    client.getStorage().getLazyUser(body.getString("user_id")),
                     -1
             );
         }
         return new UserRemoveReactionEvent(
                 timeStamp,
-                client.getStorage().getUser(get(body, "user_id").getAsString()),
-                get(body, "msg_id").getAsString(),
+                client.getStorage().getLazyUser(body.getString("user_id")),
+                body.getString("msg_id"),
                 reaction
         );
     }
@@ -25,11 +25,13 @@ import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.gson.JsonObject;
 import snw.jkook.entity.*;
 import snw.jkook.entity.channel.Channel;
+import snw.jkook.entity.channel.NonCategoryChannel;
 import snw.jkook.entity.channel.TextChannel;
 import snw.jkook.message.Message;
 import snw.kookbc.impl.KBCClient;
 import snw.kookbc.impl.entity.CustomEmojiImpl;
 import snw.kookbc.impl.entity.GuildImpl;
+import snw.kookbc.impl.entity.LazyEntity;
 import snw.kookbc.impl.entity.RoleImpl;
 import snw.kookbc.impl.entity.UserImpl;
 import snw.kookbc.impl.entity.channel.ChannelImpl;
@@ -111,6 +113,29 @@ public class EntityStorage {
         return guilds.get(id);
     }
 
+    // Return the cached user, or a handle that loads the user on first use.
+    public User getLazyUser(String id) {
+        final User result = users.getIfPresent(id);
+        return result != null ? result : LazyEntity.of(User.class, id, () -> users.get(id));
+    }
+
+    // Return the cached guild, or a handle that loads the guild on first use.
+    public Guild getLazyGuild(String id) {
+        final Guild result = guilds.getIfPresent(id);
+        return result != null ? result : LazyEntity.of(Guild.class, id, () -> guilds.get(id));
+    }
+
+    // Return the cached channel, or a handle that loads the channel on first use.
+    // The handle only knows that the channel can hold messages,
+    //  so it is not an instance of TextChannel or VoiceChannel, use the cached channel if you need that.
+    public NonCategoryChannel getLazyChannel(String id) {
+        final Channel result = channels.getIfPresent(id);
+        if (result != null) {
+            return (NonCategoryChannel) result;
+        }
+        return LazyEntity.of(NonCategoryChannel.class, id, () -> (NonCategoryChannel) getChannel(id));
+    }
+
     public Channel getChannel(String id) {
         Channel result = channels.getIfPresent(id);
         if (result == null) {
@@ -288,9 +313,9 @@ public class EntityStorage {
     public void cleanUpUserPermissionOverwrite(Guild guild, User user) {
         channels.asMap().values()
                 .stream()
-                .filter(i -> i.getGuild() == guild)
+                .filter(i -> i.getGuild() != null && i.getGuild().getId().equals(guild.getId()))
                 .map(i -> ((ChannelImpl) i).getOverwrittenUserPermissions0())
-                .forEach(i -> i.removeIf(o -> o.getUser() == user));
+                .forEach(i -> i.removeIf(o -> o.getUser().getId().equals(user.getId()))); // the user may be a LazyEntity
     }
 }
 
@@ -32,6 +32,12 @@ public interface Request<T> {
     // com.google.gson.JsonObject json = request.toJson(); // it should be OK
     T toJson();
 
+    // Get the JSON text that toJson() parses (decrypted if encrypted), without parsing it.
+    // The implementations should override it if they can provide the text directly.
+    default String toJsonString() {
+        return String.valueOf(toJson());
+    }
+
     // Only for implementation use.
     boolean isCompressed();
 
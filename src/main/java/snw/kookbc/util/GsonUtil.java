@@ -52,8 +52,8 @@ public final class GsonUtil {
             // Element
             .registerTypeAdapter(ButtonElement.class, new ButtonElementSerializer())
             .registerTypeAdapter(ImageElement.class, new ImageElementSerializer())
-            .registerTypeAdapter(MarkdownElement.class, new ContentElementSerializer<>("kmarkdown", MarkdownElement::getContent, MarkdownElement::new))
-            .registerTypeAdapter(PlainTextElement.class, new ContentElementSerializer<>("plain-text", PlainTextElement::getContent, PlainTextElement::new))
+            .registerTypeAdapter(MarkdownElement.class, new ContentElementSerializer<>(MarkdownElement::new))
+            .registerTypeAdapter(PlainTextElement.class, new ContentElementSerializer<>(PlainTextElement::new))
 
             //Structure
             .registerTypeAdapter(Paragraph.class, new ParagraphSerializer())
@@ -0,0 +1,100 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.event;
+
+import org.openjdk.jmh.annotations.*;
+import snw.jkook.event.Event;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+// Compares the ways of calling an event handler:
+//   generated - the generated class calling the handler directly (see GeneratedEventExecutors)
+//   methodHandle - the exact MethodHandle used when the class can't be generated (e.g. non-public listener)
+//   legacyInvoke - the old way, an instanceof check and MethodHandle#invoke on a handle of the original type
+// Run it after "mvn test-compile":
+//   java -cp target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main EventExecutorBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventExecutorBenchmark {
+    private Event event;
+    private EventExecutor generated;
+    private EventExecutor methodHandle;
+    private EventExecutor legacyInvoke;
+
+    @Setup
+    public void setup() throws Exception {
+        event = new StateUpdateBatchEvent(System.currentTimeMillis(), Collections.emptyList());
+
+        final PublicListener publicListener = new PublicListener();
+        generated = EventExecutorFactoryImpl.INSTANCE.create(
+                publicListener, PublicListener.class.getMethod("onBatch", StateUpdateBatchEvent.class));
+
+        final HiddenListener hiddenListener = new HiddenListener();
+        methodHandle = EventExecutorFactoryImpl.INSTANCE.create(
+                hiddenListener, HiddenListener.class.getDeclaredMethod("onBatch", StateUpdateBatchEvent.class));
+
+        final Method method = PublicListener.class.getMethod("onBatch", StateUpdateBatchEvent.class);
+        final Class<?> eventType = method.getParameterTypes()[0];
+        final MethodHandle handle = MethodHandles.lookup().unreflect(method).bindTo(new PublicListener());
+        legacyInvoke = event -> {
+            if (!eventType.isInstance(event))
+                return;
+            handle.invoke(event);
+        };
+    }
+
+    @Benchmark
+    public void generated() throws Throwable {
+        generated.execute(event);
+    }
+
+    @Benchmark
+    public void methodHandle() throws Throwable {
+        methodHandle.execute(event);
+    }
+
+    @Benchmark
+    public void legacyInvoke() throws Throwable {
+        legacyInvoke.execute(event);
+    }
+
+    public static class PublicListener {
+        public long calls;
+
+        public void onBatch(StateUpdateBatchEvent event) {
+            calls++;
+        }
+    }
+
+    static class HiddenListener {
+        long calls;
+
+        void onBatch(StateUpdateBatchEvent event) {
+            calls++;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *     KookBC -- The Kook Bot Client & JKook API standard implementation for Java.
+ *     Copyright (C) 2022 - 2023 KookBC contributors
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package snw.kookbc.impl.event;
+
+import org.junit.jupiter.api.Test;
+import snw.kookbc.impl.event.plugin.PluginListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventExecutorFactoryImplTest {
+    private static final String GENERATED_MARKER = "$$EventExecutor$";
+
+    @Test
+    void generatesExecutorForPluginListener() throws Throwable {
+        final ClassLoader pluginLoader = new PluginClassLoader(getClass().getClassLoader());
+        final Class<?> listenerClass = pluginLoader.loadClass(PluginListener.class.getName());
+        assertSame(pluginLoader, listenerClass.getClassLoader());
+        assertNotSame(PluginListener.class, listenerClass);
+
+        final Object listener = listenerClass.getConstructor().newInstance();
+        final Method method = listenerClass.getMethod("onBatch", StateUpdateBatchEvent.class);
+        final EventExecutor executor = EventExecutorFactoryImpl.INSTANCE.create(listener, method);
+
+        assertTrue(executor.getClass().getName().contains(GENERATED_MARKER), executor.getClass().getName());
+        // loaded by a class loader below the one of the plugin, so it goes away with the plugin
+        assertSame(pluginLoader, executor.getClass().getClassLoader().getParent());
+
+        executor.execute(newEvent());
+        executor.execute(newEvent());
+        assertEquals(2, listenerClass.getField("calls").getInt(listener));
+    }
+
+    @Test
+    void fallsBackForNonPublicListener() throws Throwable {
+        final HiddenListener listener = new HiddenListener();
+        final Method method = HiddenListener.class.getDeclaredMethod("onBatch", StateUpdateBatchEvent.class);
+        final EventExecutor executor = EventExecutorFactoryImpl.INSTANCE.create(listener, method);
+
+        assertFalse(executor.getClass().getName().contains(GENERATED_MARKER), executor.getClass().getName());
+
+        executor.execute(newEvent());
+        assertEquals(1, listener.calls);
+    }
+
+    private static StateUpdateBatchEvent newEvent() {
+        return new StateUpdateBatchEvent(System.currentTimeMillis(), Collections.emptyList());
+    }
+
+    static final class HiddenListener {
+        int calls;
+
+        void onBatch(StateUpdateBatchEvent event) {
+            calls++;
+        }
+    }
+
+    // Loads the classes of the "plugin" package itself, like the class loader of a plugin,
+    //  everything else comes from the parent.
+    private static final class PluginClassLoader extends ClassLoader {
+        private static final String PLUGIN_PACKAGE = PluginListener.class.getPackage().getName() + ".";
+
+        private PluginClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(PLUGIN_PACKAGE)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> result = findLoadedClass(name);
+                if (result == null) {
+                    final byte[] bytes = readClass(name);
+                    result = defineClass(name, bytes, 0, bytes.length);
+                }
+                if (resolve) {
+                    resolveClass(result);
+                }
+                return result;
+            }
+        }
+
+        private byte[] readClass(String name) throws ClassNotFoundException {
+            try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                if (in == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                return out.toByteArray();
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+    }
+}